@@ -5,7 +5,7 @@
 package ataxx;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.SplittableRandom;
 import static ataxx.Player.*;
 
 // Final Project Part A.2 Ataxx AI Player (A group project)
@@ -13,19 +13,23 @@ import static ataxx.Player.*;
 /** A Player that computes its own moves. */
 class AIPlayer extends Player {
 
-
-    // Weights for different factors in the evaluation function
-    private static final int CAPTURE_WEIGHT = 10;
-    private static final int DISTANCE_PENALTY_WEIGHT = 2;
-    private static final int CONTROL_WEIGHT = 5;
-    private static final int POTENTIAL_MOVES_WEIGHT = 3;
-
     /** A new AIPlayer for GAME that will play MYCOLOR.
-     *  SEED is used to initialize a random-number generator,
-     *  increase the value of SEED would make the AIPlayer move automatically.
-     *  Identical seeds produce identical behaviour. */
+     *  SEED is used to initialize my own random-number generator, which
+     *  breaks ties between equally good moves.  Identical seeds produce
+     *  identical behaviour. */
     AIPlayer(Game game, PieceState myColor, long seed) {
+        this(game, myColor, seed, DEFAULT_DEPTH);
+    }
+
+    /** A new AIPlayer for GAME that will play MYCOLOR, as above, searching
+     *  SEARCHDEPTH plies ahead, or as deep as it can in the time GAME
+     *  allows for a move if there is a time control.  A SEARCHDEPTH of 1
+     *  or less selects the one-ply heuristic scoring of evaluateMove
+     *  instead of a search. */
+    AIPlayer(Game game, PieceState myColor, long seed, int searchDepth) {
         super(game, myColor);
+        this.searchDepth = searchDepth;
+        random = new SplittableRandom(seed);
     }
 
     @Override
@@ -53,20 +57,203 @@ class AIPlayer extends Player {
     /** Return a move for me from the current position, assuming there
      *  is a move. */
     private Move findMove() {
+        if (searchDepth > 1) {
+            Board board = getAtaxxBoard();
+            long budget = getAtaxxGame().moveBudget(getMyState());
+            int move = finishPondering(board, budget);
+            OpeningBook book = getAtaxxGame().getBook();
+            if (move < 0 && book != null) {
+                move = book.probe(board);
+            }
+            Tablebase tablebase = getAtaxxGame().getTablebase();
+            if (move < 0 && tablebase != null) {
+                int entry = tablebase.probe(board);
+                if (entry != Tablebase.NONE) {
+                    move = Tablebase.move(entry);
+                }
+            }
+            if (move < 0 && EndgameSolver.applies(board)) {
+                long start = System.currentTimeMillis();
+                move = solveEndgame(board, budget);
+                if (budget > 0) {
+                    budget = Math.max(budget - (System.currentTimeMillis()
+                                                - start), 1);
+                }
+            }
+            if (move < 0) {
+                move = newSearcher(board, budget).findMove();
+            }
+            lastFoundMove = Move.unpack(move);
+            startPondering(board, move, budget);
+            return lastFoundMove;
+        }
+        return findHeuristicMove();
+    }
+
+    /** Return a Searcher for the position on BOARD, limited to BUDGET
+     *  milliseconds (0 for a fixed-depth search), and set up with the
+     *  depth, table and threads my game provides. */
+    private Searcher newSearcher(Board board, long budget) {
+        return newSearcher(board, budget > 0 ? Search.MAX_DEPTH : searchDepth,
+                           budget);
+    }
+
+    /** Return a Searcher for the position on BOARD, as above, that
+     *  searches at most DEPTH plies. */
+    private Searcher newSearcher(Board board, int depth, long budget) {
+        Game game = getAtaxxGame();
+        Searcher search;
+        if (game.searchThreads() > 1 && game.forkJoin()) {
+            search = new ForkJoinSearch(board, depth,
+                    game.getTranspositionTable(), game.searchThreads());
+        } else if (game.searchThreads() > 1) {
+            search = new LazySMP(board, depth,
+                    game.getTranspositionTable(), game.searchThreads());
+        } else {
+            search = new Search(board, depth, game.getTranspositionTable());
+        }
+        search.setTimeLimit(budget);
+        search.setTablebase(game.getTablebase());
+        search.setEvaluator(game.getEvaluator());
+        return search;
+    }
+
+    /** Return the best move (packed) from the nearly finished position
+     *  on BOARD, if an EndgameSolver can find it exactly within half of
+     *  BUDGET milliseconds (or ENDGAME_TIME_LIMIT, if BUDGET is 0), and
+     *  otherwise -1. */
+    private int solveEndgame(Board board, long budget) {
+        if (endgameTable == null) {
+            endgameTable =
+                new TranspositionTable(EndgameSolver.DEFAULT_HASH_SIZE);
+        }
+        EndgameSolver solver = new EndgameSolver(board, endgameTable);
+        solver.setTimeLimit(budget > 0 ? Math.max(budget / 2, 1)
+                            : ENDGAME_TIME_LIMIT);
+        int move = solver.findMove();
+        return solver.solved() ? move : -1;
+    }
+
+    /** If my game allows pondering and my opponent is not automated,
+     *  start searching, in the background, the position I expect after
+     *  the packed MOVE from BOARD and my opponent's likeliest reply (the
+     *  best move stored for it in the transposition table).  BUDGET is
+     *  the time allowed for my current move, as for newSearcher.  The
+     *  search has no time limit, so under a time control it stops
+     *  PONDER_DEPTH_MARGIN plies deeper than the table's entry for the
+     *  position, if it is not stopped before. */
+    private void startPondering(Board board, int move, long budget) {
+        Game game = getAtaxxGame();
+        if (!game.pondering() || game.isAutoPlayer(getMyState().opposite())) {
+            return;
+        }
+        Board ponder = new Board(board);
+        ponder.makeMove(move);
+        if (ponder.getWinner() != null) {
+            return;
+        }
+        int reply = Move.PASS_MOVE;
+        int n = ponder.generateMoves(moveBuffer, true);
+        if (n > 0) {
+            int predicted =
+                Search.tableMove(game.getTranspositionTable(), ponder);
+            Search.moveToFront(moveBuffer, n, predicted);
+            if (moveBuffer[0] != predicted) {
+                return;
+            }
+            reply = predicted;
+        }
+        ponder.makeMove(reply);
+        if (ponder.getWinner() != null) {
+            return;
+        }
+        int depth = searchDepth;
+        if (budget > 0) {
+            depth = Math.min(Search.tableDepth(game.getTranspositionTable(),
+                                               ponder)
+                             + PONDER_DEPTH_MARGIN, Search.MAX_DEPTH);
+        }
+        Searcher search = newSearcher(ponder, depth, 0);
+        ponderSearch = search;
+        ponderKey = ponder.key();
+        ponderStart = System.currentTimeMillis();
+        ponderThread = new Thread(() -> ponderMove = search.findMove());
+        ponderThread.setDaemon(true);
+        ponderThread.start();
+    }
+
+    /** Stop pondering, if I am, and return the best move (packed) found
+     *  if the position I pondered is the one on BOARD, or -1 otherwise.
+     *  In the first case, the search first gets what remains of BUDGET
+     *  milliseconds since it started, or finishes its fixed depth if
+     *  BUDGET is 0. */
+    private int finishPondering(Board board, long budget) {
+        if (ponderThread == null) {
+            return -1;
+        }
+        boolean hit = board.key() == ponderKey;
+        if (hit) {
+            long left = budget - (System.currentTimeMillis() - ponderStart);
+            try {
+                if (budget == 0) {
+                    ponderThread.join();
+                } else if (left > 0) {
+                    ponderThread.join(left);
+                }
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        stopThinking();
+        ponderHits += hit ? 1 : 0;
+        return hit ? ponderMove : -1;
+    }
+
+    @Override
+    void stopThinking() {
+        if (ponderThread == null) {
+            return;
+        }
+        ponderSearch.stop();
+        try {
+            ponderThread.join();
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        }
+        ponderThread = null;
+        ponderSearch = null;
+    }
+
+    /** Return true iff I am pondering. */
+    boolean pondering() {
+        return ponderThread != null;
+    }
+
+    /** Return the number of my moves taken from pondering. */
+    int ponderHits() {
+        return ponderHits;
+    }
+
+    /** Return a move for me from the current position chosen at random
+     *  among those that evaluateMove scores best. */
+    private Move findHeuristicMove() {
         Board b = new Board(getAtaxxBoard());
         lastFoundMove = null;
 
-        ArrayList<Move> listOfMoves = possibleMoves(b, b.nextMove());
+        int numMoves = b.generateMoves(moveBuffer, true);
+        if (numMoves == 0) {
+            return Move.pass();
+        }
         ArrayList<ScoredMove> scoredMoves = new ArrayList<>();
+        int control = controlScore(b, getMyState());
+        int mobility = potentialMovesScore(b, getMyState());
 
-        for (Move move : listOfMoves) {
-            int score = evaluateMove(b, move);
-            scoredMoves.add(new ScoredMove(move, score));
+        for (int i = 0; i < numMoves; i++) {
+            int score = evaluateMove(b, moveBuffer[i], control, mobility);
+            scoredMoves.add(new ScoredMove(Move.unpack(moveBuffer[i]),
+                                           score));
         }
 
-        // Shuffle the list of scored moves to add randomness
-        Collections.shuffle(scoredMoves);
-
         int bestScore = Integer.MIN_VALUE;
         ArrayList<Move> bestMoves = new ArrayList<>();
 
@@ -81,7 +268,7 @@ class AIPlayer extends Player {
         }
 
         // Randomly select a move from the best-scoring moves
-        int randomIndex = (int) (Math.random() * bestMoves.size());
+        int randomIndex = random.nextInt(bestMoves.size());
         lastFoundMove = bestMoves.get(randomIndex);
 
         return lastFoundMove != null ? lastFoundMove : Move.pass();
@@ -89,45 +276,18 @@ class AIPlayer extends Player {
 
 
     /**
-     * Evaluates a move's value based on the current board state.
+     * Evaluates a move's value based on the current board state, by my
+     * game's Evaluator.
      * Factors include captured pieces, distance penalty, control score, and potential moves score.
-     * @param board the current board
-     * @param move the move being evaluated
+     * @param board the current board, with me to move
+     * @param move the packed move being evaluated, not a pass
+     * @param control controlScore(board, getMyState()) before the move
+     * @param mobility potentialMovesScore(board, getMyState()) before the move
      * @return the calculated score for the move
      */
-    private int evaluateMove(Board board, Move move) {
-        int capturedPieces = 0;
-        Board tempBoard = new Board(board);
-        tempBoard.createMove(move);
-
-        int fromIndex = Board.index(move.col0(), move.row0());
-        int toIndex = Board.index(move.col1(), move.row1());
-
-        // Calculate the number of captured pieces
-        for (int dr = -1; dr <= 1; dr++) {
-            for (int dc = -1; dc <= 1; dc++) {
-                if (dr != 0 || dc != 0) {
-                    int neighborIndex = toIndex + 7 * dr + dc;
-                    if (tempBoard.getContent(neighborIndex) == getMyState().opposite()) {
-                        capturedPieces++;
-                    }
-                }
-            }
-        }
-
-        // Calculate the distance penalty
-        int distance = Math.abs(move.col1() - move.col0()) + Math.abs(move.row1() - move.row0());
-        int distancePenalty = distance == 1 ? 0 : 1;
-
-        // Calculate the control and potential moves scores
-        int controlScore = controlScore(tempBoard, getMyState());
-        int potentialMovesScore = potentialMovesScore(tempBoard, getMyState());
-
-        // Combine factors with their respective weights to calculate the final score
-        return CAPTURE_WEIGHT * capturedPieces
-                - DISTANCE_PENALTY_WEIGHT * distancePenalty
-                + CONTROL_WEIGHT * controlScore
-                + POTENTIAL_MOVES_WEIGHT * potentialMovesScore;
+    int evaluateMove(Board board, int move, int control, int mobility) {
+        return getAtaxxGame().getEvaluator().evaluateMove(board, move,
+                                                          control, mobility);
     }
 
     /**
@@ -137,74 +297,65 @@ class AIPlayer extends Player {
      * @return the control score
      */
     private int controlScore(Board board, PieceState myColor) {
-        int myPieces = 0;
-        int opponentPieces = 0;
-
-        for (char row = '7'; row >= '1'; row--) {
-            for (char col = 'a'; col <= 'g'; col++) {
-                int index = Board.index(col, row);
-                PieceState content = board.getContent(index);
-
-                if (content == myColor) {
-                    myPieces++;
-                } else if (content == myColor.opposite()) {
-                    opponentPieces++;
-                }
-            }
-        }
-
-        return myPieces - opponentPieces;
+        return board.getColorNums(myColor)
+                - board.getColorNums(myColor.opposite());
     }
 
+    /**
+     * Calculate the potential moves score by comparing the number of moves
+     * available to the current player and the opponent.
+     * @param board the current board
+     * @param myColor the current player's color
+     * @return the potential moves score
+     */
     private int potentialMovesScore(Board board, PieceState myColor) {
-        int myPotentialMoves = possibleMoves(board, myColor).size();
-        int opponentPotentialMoves = possibleMoves(board, myColor.opposite()).size();
+        int myPotentialMoves = board.moveCount(myColor);
+        int opponentPotentialMoves = board.moveCount(myColor.opposite());
 
         return myPotentialMoves - opponentPotentialMoves;
     }
 
     private Move lastFoundMove;
 
+    /** My source of random numbers, seeded when I am created. */
+    private final SplittableRandom random;
 
-    /** Return all possible moves for a color.
-     * @param board the current board.
-     * @param myColor the specified color.
-     * @return an ArrayList of all possible moves for the specified color. */
-    private ArrayList<Move> possibleMoves(Board board, PieceState myColor) {
-        ArrayList<Move> possibleMoves = new ArrayList<>();
-        for (char row = '7'; row >= '1'; row--) {
-            for (char col = 'a'; col <= 'g'; col++) {
-                int index = Board.index(col, row);
-                if (board.getContent(index) == myColor) {
-                    ArrayList<Move> addMoves
-                            = assistPossibleMoves(board, row, col);
-                    possibleMoves.addAll(addMoves);
-                }
-            }
-        }
-        return possibleMoves;
-    }
-
-    /** Returns an Arraylist of legal moves.
-     * @param board the board for testing
-     * @param row the row coordinate of the center
-     * @param col the col coordinate of the center */
-    private ArrayList<Move>
-    assistPossibleMoves(Board board, char row, char col) {
-        ArrayList<Move> assistPossibleMoves = new ArrayList<>();
-        for (int i = -2; i <= 2; i++) {
-            for (int j = -2; j <= 2; j++) {
-                if (i != 0 || j != 0) {
-                    char row2 = (char) (row + j);
-                    char col2 = (char) (col + i);
-                    Move currMove = Move.move(col, row, col2, row2);
-                    if (board.moveLegal(currMove)) {
-                        assistPossibleMoves.add(currMove);
-                    }
-                }
-            }
-        }
-        return assistPossibleMoves;
-    }
-}
+    /** The table of my EndgameSolvers, or null if not yet needed. */
+    private TranspositionTable endgameTable;
+
+    /** The thread searching the position I expect next, or null if I am
+     *  not pondering. */
+    private Thread ponderThread;
 
+    /** The search that ponderThread runs. */
+    private Searcher ponderSearch;
+
+    /** Board.key() of the position being pondered. */
+    private long ponderKey;
+
+    /** System.currentTimeMillis() when pondering started. */
+    private long ponderStart;
+
+    /** The move found by pondering. */
+    private volatile int ponderMove;
+
+    /** Number of moves taken from pondering. */
+    private int ponderHits;
+
+    /** Buffer into which moves are generated. */
+    private final int[] moveBuffer = new int[Board.MAX_MOVES];
+
+    /** Number of plies to search ahead. */
+    private final int searchDepth;
+
+    /** Milliseconds allowed for solving an endgame when there is no
+     *  time control. */
+    static final long ENDGAME_TIME_LIMIT = 1000;
+
+    /** Plies beyond the depth in the transposition table to which a
+     *  position is pondered under a time control. */
+    static final int PONDER_DEPTH_MARGIN = 4;
+
+    /** Search depth used unless another is given. */
+    static final int DEFAULT_DEPTH = 4;
+}
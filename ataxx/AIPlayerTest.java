@@ -0,0 +1,160 @@
+package ataxx;
+
+import org.junit.Test;
+
+import static ataxx.PieceState.*;
+import static org.junit.Assert.*;
+
+public class AIPlayerTest {
+
+    /** A Reporter that reports nothing. */
+    private static final Reporter QUIET = new Reporter() {
+        public void announceWinner(PieceState state) { }
+        public void announceMove(Move move, PieceState player) { }
+        public void message(String format, Object... args) { }
+        public void error(String format, Object... args) { }
+    };
+
+    /** Return a Game that ponders, reporting nothing. */
+    private static Game ponderingGame() {
+        Game game = new Game(null, (b) -> { }, QUIET);
+        game.setPondering(true);
+        return game;
+    }
+
+    /** Return the reply to the side to move on B that GAME's
+     *  transposition table predicts. */
+    private static int predicted(Game game, Board b) {
+        return TranspositionTable.move(
+            game.getTranspositionTable().probe(b.key()));
+    }
+
+    @Test
+    public void testPonderHit() {
+        Game game = ponderingGame();
+        Board b = game.getAtaxxBoard();
+        AIPlayer ai = new AIPlayer(game, RED, 1, 4);
+        b.makeMove(Move.move(ai.getAtaxxMove()));
+        b.makeMove(predicted(game, b));
+        Move move = Move.move(ai.getAtaxxMove());
+        assertEquals(1, ai.ponderHits());
+        assertTrue(b.moveLegal(move));
+        ai.stopThinking();
+    }
+
+    @Test
+    public void testPonderMiss() {
+        Game game = ponderingGame();
+        Board b = game.getAtaxxBoard();
+        AIPlayer ai = new AIPlayer(game, RED, 1, 4);
+        b.makeMove(Move.move(ai.getAtaxxMove()));
+        int[] moves = new int[Board.MAX_MOVES];
+        int n = b.generateMoves(moves, true);
+        Search.moveToFront(moves, n, predicted(game, b));
+        b.makeMove(moves[n - 1]);
+        Move move = Move.move(ai.getAtaxxMove());
+        assertEquals(0, ai.ponderHits());
+        assertTrue(b.moveLegal(move));
+        ai.stopThinking();
+    }
+
+    /** Play a game in which red, the manual player, opens with a7-b6
+     *  and then gives the command LAST, with blue, an AIPlayer with a
+     *  time control, pondering in between.  If WIPE, blue's pieces are
+     *  removed before LAST, which ends the game.  Return whether blue
+     *  was pondering before LAST and when the next command was read. */
+    private static boolean[] ponderThenCommand(boolean wipe, String last) {
+        boolean[] pondering = new boolean[2];
+        Game[] game = new Game[1];
+        int[] calls = { 0 };
+        game[0] = new Game((prompt) -> {
+            AIPlayer blue = (AIPlayer) game[0].getAtaxxPlayer(BLUE);
+            switch (calls[0]++) {
+            case 0:
+                return "a7-b6";
+            case 1:
+                pondering[0] = blue.pondering();
+                if (wipe) {
+                    Board b = game[0].getAtaxxBoard();
+                    for (char c = 'a'; c <= 'g'; c++) {
+                        for (char r = '1'; r <= '7'; r++) {
+                            if (b.getContent(c, r) == BLUE) {
+                                b.setContent(c, r, EMPTY);
+                            }
+                        }
+                    }
+                }
+                return last;
+            default:
+                pondering[1] = blue.pondering();
+                return "quit";
+            }
+        }, (b) -> { }, QUIET);
+        game[0].setPondering(true);
+        game[0].setMoveTime(100);
+        game[0].play();
+        return pondering;
+    }
+
+    @Test
+    public void testPonderingStopsWhenGameEnds() {
+        boolean[] pondering = ponderThenCommand(true, "board");
+        assertTrue(pondering[0]);
+        assertFalse(pondering[1]);
+    }
+
+    @Test
+    public void testPonderingStopsOnNewGame() {
+        boolean[] pondering = ponderThenCommand(false, "new");
+        assertTrue(pondering[0]);
+        assertFalse(pondering[1]);
+    }
+
+    /** Return the first PLIES moves of a game between one-ply AIPlayers
+     *  seeded with SEED and SEED + 1. */
+    private static String heuristicGame(long seed, int plies) {
+        Game game = ponderingGame();
+        Board b = game.getAtaxxBoard();
+        AIPlayer red = new AIPlayer(game, RED, seed, 1),
+            blue = new AIPlayer(game, BLUE, seed + 1, 1);
+        StringBuilder moves = new StringBuilder();
+        for (int i = 0; i < plies && b.getWinner() == null; i++) {
+            String move =
+                (b.nextMove() == RED ? red : blue).getAtaxxMove();
+            b.makeMove(Move.move(move));
+            moves.append(move).append(' ');
+        }
+        return moves.toString();
+    }
+
+    @Test
+    public void testSameSeedSameGame() {
+        assertEquals(heuristicGame(7, 40), heuristicGame(7, 40));
+        assertEquals(heuristicGame(8, 40), heuristicGame(8, 40));
+    }
+
+    @Test
+    public void testIncrementalEvaluationMatchesFull() {
+        Game game = ponderingGame();
+        int[] moves = new int[Board.MAX_MOVES];
+        for (int seed = 0; seed < 20; seed++) {
+            Board b = SearchTest.randomBoard(seed, 5 * seed);
+            if (b.getWinner() != null) {
+                continue;
+            }
+            PieceState me = b.nextMove();
+            AIPlayer ai = new AIPlayer(game, me, seed, 1);
+            int control = b.getColorNums(me) - b.getColorNums(me.opposite());
+            int mobility = b.moveCount(me) - b.moveCount(me.opposite());
+            int[] features = new int[WeightedEvaluator.FEATURES];
+            int n = b.generateMoves(moves, true);
+            for (int i = 0; i < n; i++) {
+                WeightedEvaluator.features(b, moves[i], features);
+                assertEquals(WeightedEvaluator.DEFAULT.value(features,
+                                 WeightedEvaluator.POSITION_FEATURES,
+                                 WeightedEvaluator.FEATURES),
+                             ai.evaluateMove(b, moves[i], control, mobility));
+            }
+        }
+    }
+}
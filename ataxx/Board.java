@@ -1,8 +1,8 @@
 package ataxx;
 
-import java.io.PipedReader;
-import java.util.Arrays;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 
 import java.util.function.Consumer;
 
@@ -28,6 +28,11 @@ import static ataxx.GameException.error;
  *  blocked, the normal logic that prevents moving to a blocked square
  *  will apply.
  *
+ *  Internally, the contents of the 49 real squares are kept as three
+ *  64-bit masks (red, blue and blocked), one bit per square, numbered
+ *  bit(c, r) = (r - '1') * 7 + (c - 'a').  The border is implicit:
+ *  getContent reports BLOCKED for every square outside a1-g7.
+ *
  *  Moves on this board are denoted by Moves.*/
 class Board {
 
@@ -35,7 +40,6 @@ class Board {
      * A new, cleared board in the initial configuration.
      */
     Board() {
-        ataxxBoard = new PieceState[DEEPER_ONESIDE * DEEPER_ONESIDE];
         setNotifier(NOP);
         clear();
     }
@@ -45,13 +49,16 @@ class Board {
      * but whose notifier does nothing.
      */
     Board(Board board0) {
-        ataxxBoard = board0.ataxxBoard.clone();
+        redPieces = board0.redPieces;
+        bluePieces = board0.bluePieces;
+        blockedSquares = board0.blockedSquares;
+        pieceKey = board0.pieceKey;
         nextMove = board0.nextMove();
         totalMoves = new ArrayList<>();
-        colorNum = board0.colorNum.clone();
         consecJumpNum = board0.getConsecJumpNums();
         unblockedNum = board0.unblockedNum();
         winner = board0.winner;
+        winnerKnown = board0.winnerKnown;
         setNotifier(NOP);
     }
 
@@ -70,27 +77,17 @@ class Board {
     void clear() {
         nextMove = RED;
         totalMoves = new ArrayList<>();
+        undoSize = 0;
         unblockedNum = ONESIDE * ONESIDE;
         consecJumpNum = 0;
-        colorNum[RED.ordinal()] = 2;
-        colorNum[BLUE.ordinal()] = 2;
-        for (int i = 0; i < ataxxBoard.length; i++) {
-            if (i == DEEPER_ONESIDE * 2 + 8
-                    || i == DEEPER_ONESIDE * 8 + 2) {
-                setContent(i, RED);
-            } else if (i == DEEPER_ONESIDE * 8 + 8
-                    || i == DEEPER_ONESIDE * 2 + 2) {
-                setContent(i, BLUE);
-            } else if (i % DEEPER_ONESIDE == 0
-                    || i % DEEPER_ONESIDE == DEEPER_ONESIDE - 1
-                    || i < DEEPER_ONESIDE
-                    || i > DEEPER_ONESIDE * (DEEPER_ONESIDE - 1)) {
-                setContent(i, BLOCKED);
-            } else {
-                setContent(i, EMPTY);
-            }
-        }
+        redPieces = bluePieces = blockedSquares = 0L;
+        pieceKey = 0L;
+        setContent('g', '1', RED);
+        setContent('a', '7', RED);
+        setContent('g', '7', BLUE);
+        setContent('a', '1', BLUE);
         winner = null;
+        positionChanged();
         announce();
     }
 
@@ -146,28 +143,16 @@ class Board {
      * that player's move and whether the getAtaxxGame is over.
      */
     boolean couldMove(PieceState who) {
-        for (char r = '7'; r >= '1'; r--) {
-            for (char c = 'a'; c <= 'g'; c++) {
-                if (getContent(c, r) == who) {
-                    for (int i = -2; i <= 2; i++) {
-                        for (int j = -2; j <= 2; j++) {
-                            if (i != 0 || j != 0) {
-                                char c2 = (char) (c + i);
-                                char r2 = (char) (r + j);
-                                if (c2 >= 'a'
-                                        && c2 <= 'g'
-                                        && r2 >= '1'
-                                        && r2 <= '7'
-                                        && getContent(c2, r2) == EMPTY) {
-                                    return true;
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return false;
+        return frontier(who) != 0;
+    }
+
+    /**
+     * Return the mask of WHO's pieces that have an empty square within
+     * two squares, i.e. the pieces that could make a move.  This is a
+     * fixed number of mask operations, whatever the position.
+     */
+    long frontier(PieceState who) {
+        return grow(grow(emptySquares())) & pieces(who);
     }
 
     /**
@@ -203,52 +188,226 @@ class Board {
             return;
         }
         totalMoves.add(move);
-        PieceState opponent = nextMove().opposite();
-        if (move.isJump()) {
-            setContent(move.fromIndex(), EMPTY);
-            setContent(move.toIndex(), nextMove());
-            convertColor(move, nextMove());
-            consecJumpNum++;
-        } else if (move.isClone()) {
-            setContent(move.toIndex(), nextMove());
-            convertColor(move, nextMove());
-            consecJumpNum = 0;
-            incrColorPieces(nextMove(), 1);
-        }
-        nextMove = opponent;
+        applyMove(toBit(move.fromIndex()), toBit(move.toIndex()));
         getWinner();
         announce();
     }
 
     /**
-     * Changes the color of surrounding pieces within 1
-     * by Move.
+     * Make MOVE, which must be legal for nextMove(), remembering what
+     * it changed so that undoMove() can take it back.  Unlike
+     * createMove, this neither announces the move nor records it in
+     * moveNums(), and it allocates nothing once the undo stack has
+     * grown to the depth being searched.
      *
-     * @param move The move that is used for converting
-     *             the color around its destination.
-     * @param self The color of the player's piece.
+     * @param move The move (possibly a pass) to make.
      */
-    private void convertColor(Move move, PieceState self) {
-        convertColor(move.toIndex(), self);
+    void makeMove(Move move) {
+        makeMove(move.packed());
     }
 
     /**
-     * Changes the color of surrounding pieces within 1
-     * by index.
-     *
-     * @param index The index that is used for converting
-     *              the color.
-     * @param self  The color of the player's piece.
+     * As for makeMove(Move), but for the packed move MOVE
+     * (see Move.pack).
+     */
+    void makeMove(int move) {
+        if (undoSize == undoFlips.length) {
+            undoFlips = Arrays.copyOf(undoFlips, 2 * undoSize);
+            undoState = Arrays.copyOf(undoState, 2 * undoSize);
+        }
+        undoState[undoSize] = move
+                | (nextMove == BLUE ? 1 << 12 : 0)
+                | (consecJumpNum << 13);
+        if (move == Move.PASS_MOVE) {
+            undoFlips[undoSize] = 0;
+            nextMove = nextMove.opposite();
+            positionChanged();
+        } else {
+            undoFlips[undoSize] = applyMove(Move.fromBit(move),
+                                            Move.toBit(move));
+        }
+        undoSize += 1;
+    }
+
+    /**
+     * Write the legal moves of nextMove(), packed as by Move.pack, into
+     * MOVES[0 .. n-1] and return n.  Clones come before jumps from the
+     * same piece.  A pass is never included: when n is 0, the only move
+     * is a pass (or the game is over).  MOVES must have room for
+     * MAX_MOVES entries; nothing is allocated.
      */
-    private void convertColor(int index, PieceState self) {
-        for (int i = -1; i <= 1; i++) {
-            for (int j = -1; j <= 1; j++) {
-                if (getContent(getNeighbor(index, i, j)) == self.opposite()) {
-                    setContent(getNeighbor(index, i, j), self);
-                    incrColorPieces(self, 1);
-                    incrColorPieces(self.opposite(), -1);
+    int generateMoves(int[] moves) {
+        return generateMoves(nextMove, moves);
+    }
+
+    /** As for generateMoves(MOVES), but if DISTINCTCLONES, produce only
+     *  one clone onto each empty square (all clones onto the same square
+     *  give the same position), listing those clones first.  Jumps are
+     *  always listed in full. */
+    int generateMoves(int[] moves, boolean distinctClones) {
+        return generateMoves(nextMove, moves, distinctClones);
+    }
+
+    /** As for generateMoves(MOVES), but for the pieces of WHO, whether or
+     *  not it is WHO's turn. */
+    int generateMoves(PieceState who, int[] moves) {
+        return generateMoves(who, moves, false);
+    }
+
+    /** As for generateMoves(MOVES, DISTINCTCLONES), but for the pieces of
+     *  WHO, whether or not it is WHO's turn. */
+    int generateMoves(PieceState who, int[] moves, boolean distinctClones) {
+        long empty = emptySquares();
+        long mine = pieces(who);
+        int n = 0;
+        if (distinctClones) {
+            for (long to = grow(mine) & empty; to != 0; to &= to - 1) {
+                int dest = Long.numberOfTrailingZeros(to);
+                int from = Long.numberOfTrailingZeros(CLONE_REACH[dest] & mine);
+                moves[n++] = Move.pack(from, dest);
+            }
+        }
+        for (long pieces = mine; pieces != 0; pieces &= pieces - 1) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            if (!distinctClones) {
+                for (long to = CLONE_REACH[from] & empty; to != 0;
+                     to &= to - 1) {
+                    moves[n++] = Move.pack(from,
+                                           Long.numberOfTrailingZeros(to));
                 }
             }
+            for (long to = JUMP_REACH[from] & empty; to != 0; to &= to - 1) {
+                moves[n++] = Move.pack(from, Long.numberOfTrailingZeros(to));
+            }
+        }
+        return n;
+    }
+
+    /** Return the number of moves that generateMoves(WHO, ...) would
+     *  produce, without producing them. */
+    int moveCount(PieceState who) {
+        long empty = emptySquares();
+        int n = 0;
+        for (long pieces = pieces(who); pieces != 0; pieces &= pieces - 1) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            n += Long.bitCount((CLONE_REACH[from] | JUMP_REACH[from]) & empty);
+        }
+        return n;
+    }
+
+    /** Return the amount by which making the packed MOVE, a legal move
+     *  other than a pass for the side to move, would change
+     *  moveCount(WHO), without making it.  moveCount counts pairs of a
+     *  piece and an empty square within two squares of it, and only
+     *  pairs including a square that MOVE changes (its destination,
+     *  the pieces it converts, and for a jump its origin, all within the
+     *  5x5 block around the destination) can change, so this takes time
+     *  independent of the rest of the board. */
+    int moveCountChange(int move, PieceState who) {
+        int from = Move.fromBit(move), to = Move.toBit(move);
+        long dest = 1L << to;
+        long flips = captures(to, nextMove);
+        long vacated = (CLONE_REACH[from] & dest) == 0 ? 1L << from : 0;
+        long changed = dest | flips | vacated;
+        long empty = emptySquares();
+        long newEmpty = (empty & ~dest) | vacated;
+        long mine = pieces(who);
+        long newMine = who == nextMove ? (mine | dest | flips) & ~vacated
+            : mine & ~flips;
+        return reachPairs(newMine, newEmpty, changed)
+            - reachPairs(mine, empty, changed);
+    }
+
+    /** Return the number of pairs of a square of PIECES and a square of
+     *  EMPTY within two squares of each other that include a square of
+     *  CHANGED. */
+    private static int reachPairs(long pieces, long empty, long changed) {
+        int n = 0;
+        for (long sq = changed & pieces; sq != 0; sq &= sq - 1) {
+            int b = Long.numberOfTrailingZeros(sq);
+            n += Long.bitCount((CLONE_REACH[b] | JUMP_REACH[b]) & empty);
+        }
+        for (long sq = changed & empty; sq != 0; sq &= sq - 1) {
+            int b = Long.numberOfTrailingZeros(sq);
+            n += Long.bitCount((CLONE_REACH[b] | JUMP_REACH[b]) & pieces
+                               & ~changed);
+        }
+        return n;
+    }
+
+    /**
+     * Take back the last move made by makeMove that has not already
+     * been taken back, restoring the flipped pieces, the side to move
+     * and getConsecJumpNums().
+     */
+    void undoMove() {
+        assert undoSize > 0;
+        undoSize -= 1;
+        int state = undoState[undoSize];
+        int from = Move.fromBit(state), to = Move.toBit(state);
+        PieceState mover = (state & (1 << 12)) != 0 ? BLUE : RED;
+        if ((state & Move.PASS_MOVE) != Move.PASS_MOVE) {
+            long flips = undoFlips[undoSize];
+            long moved = 1L << to;
+            if ((CLONE_REACH[from] & moved) == 0) {
+                moved |= 1L << from;
+            }
+            xorPieces(mover, moved | flips);
+            xorPieces(mover.opposite(), flips);
+        }
+        nextMove = mover;
+        consecJumpNum = state >>> 13;
+        positionChanged();
+    }
+
+    /** Return the number of moves made with makeMove that have not been
+     *  taken back. */
+    int undoDepth() {
+        return undoSize;
+    }
+
+    /**
+     * Move nextMove()'s piece from bit FROM to bit TO, cloning if they are
+     * adjacent and jumping otherwise, convert the neighbouring opposing
+     * pieces, and hand the move to the opponent.
+     *
+     * @return the mask of converted pieces.
+     */
+    private long applyMove(int from, int to) {
+        PieceState self = nextMove;
+        long flips = captures(to, self);
+        long moved = 1L << to;
+        if ((CLONE_REACH[from] & moved) != 0) {
+            consecJumpNum = 0;
+        } else {
+            moved |= 1L << from;
+            consecJumpNum++;
+        }
+        xorPieces(self, moved | flips);
+        xorPieces(self.opposite(), flips);
+        nextMove = self.opposite();
+        positionChanged();
+        return flips;
+    }
+
+    /**
+     * Return the mask of pieces that a piece of color SELF arriving
+     * at bit number BIT would convert.
+     */
+    long captures(int bit, PieceState self) {
+        return CLONE_REACH[bit] & pieces(self.opposite());
+    }
+
+    /** Toggle the squares in MASK in the piece mask of COLOR. */
+    private void xorPieces(PieceState color, long mask) {
+        if (color == RED) {
+            redPieces ^= mask;
+        } else {
+            bluePieces ^= mask;
+        }
+        long[] keys = ZOBRIST[color.ordinal()];
+        for (; mask != 0; mask &= mask - 1) {
+            pieceKey ^= keys[Long.numberOfTrailingZeros(mask)];
         }
     }
 
@@ -263,6 +422,7 @@ class Board {
     }*/
     void pass() {
         nextMove = nextMove.opposite();
+        positionChanged();
         announce();
     }
 
@@ -316,10 +476,6 @@ class Board {
         char col = (char) ('g' - (c - 'a'));
         char row = (char) ('7' - (r - '1'));
 
-        int index1 = index(col, row);
-        int index2 = index(c, row);
-        int index3 = index(col, r);
-
         setContent(c, r, PieceState.BLOCKED);
         setContent(col, row, PieceState.BLOCKED);
         setContent(c, row, PieceState.BLOCKED);
@@ -346,17 +502,62 @@ class Board {
         return toString(false);
     }
 
+    /** Two boards are equal if they have the same contents, the same
+     *  side to move and the same jump-counter bucket, which is exactly
+     *  when their key()s are equal barring Zobrist collisions. */
     @Override
     public boolean equals(Object obj) {
         if (!(obj instanceof Board other)) {
             return false;
         }
-        return Arrays.equals(ataxxBoard, other.ataxxBoard);
+        return redPieces == other.redPieces
+                && bluePieces == other.bluePieces
+                && blockedSquares == other.blockedSquares
+                && nextMove == other.nextMove
+                && jumpBucket() == other.jumpBucket();
     }
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(ataxxBoard);
+        return Long.hashCode(key());
+    }
+
+    /** Return the 64-bit Zobrist key of this position: the contents of
+     *  all squares, the side to move and the jump-counter bucket.  The
+     *  square part is kept up to date by every change to the board, so
+     *  this takes constant time. */
+    long key() {
+        long key = pieceKey ^ ZOBRIST_JUMPS[jumpBucket()];
+        return nextMove == BLUE ? key ^ ZOBRIST_BLUE_TO_MOVE : key;
+    }
+
+    /** Return the key() of the position with RED, BLUE and BLOCKED as
+     *  the masks of red pieces, blue pieces and blocked squares, and my
+     *  side to move and jump count: for the images of my masks under a
+     *  Symmetry, the key of my mirror image.  Takes time proportional to
+     *  the number of filled squares. */
+    long key(long red, long blue, long blocked) {
+        long key = ZOBRIST_JUMPS[jumpBucket()]
+            ^ squaresKey(ZOBRIST[RED.ordinal()], red)
+            ^ squaresKey(ZOBRIST[BLUE.ordinal()], blue)
+            ^ squaresKey(ZOBRIST[BLOCKED.ordinal()], blocked);
+        return nextMove == BLUE ? key ^ ZOBRIST_BLUE_TO_MOVE : key;
+    }
+
+    /** Return the exclusive or of KEYS[b] for each bit b of MASK. */
+    private static long squaresKey(long[] keys, long mask) {
+        long key = 0;
+        for (; mask != 0; mask &= mask - 1) {
+            key ^= keys[Long.numberOfTrailingZeros(mask)];
+        }
+        return key;
+    }
+
+    /** Return the bucket of getConsecJumpNums() that key() distinguishes:
+     *  one per count, with every count from CONSEC_JUMP_LIMIT on (at
+     *  which the game is over) sharing the last bucket. */
+    private int jumpBucket() {
+        return Math.min(consecJumpNum, CONSEC_JUMP_LIMIT);
     }
 
     /** Return a text depiction of the board.
@@ -407,6 +608,51 @@ class Board {
     static int index(char col, char row) {
         return (row - '1' + 2) * DEEPER_ONESIDE + (col - 'a' + 2);
     }
+
+    /** Return the bit number of square COL ROW, where 'a' <= COL <= 'g'
+     *  and '1' <= ROW <= '7'. */
+    static int bit(char col, char row) {
+        return (row - '1') * ONESIDE + (col - 'a');
+    }
+
+    /** Return the bit number of the square with linearized index SQ,
+     *  or -1 if SQ lies in the border. */
+    static int toBit(int sq) {
+        return TO_BIT[sq];
+    }
+
+    /** Return the linearized index of the square with bit number BIT. */
+    static int fromBit(int bit) {
+        return FROM_BIT[bit];
+    }
+
+    /** Return the mask of squares that are at most one square away from a
+     *  square in MASK (including the squares of MASK themselves). */
+    static long grow(long mask) {
+        long row = (mask | ((mask << 1) & ~FILE_A) | ((mask >>> 1) & ~FILE_G))
+            & ALL_SQUARES;
+        return (row | (row << ONESIDE) | (row >>> ONESIDE)) & ALL_SQUARES;
+    }
+
+    /** Return the mask of squares occupied by COLOR's pieces.  COLOR may
+     *  also be BLOCKED or EMPTY. */
+    long pieces(PieceState color) {
+        switch (color) {
+        case RED:
+            return redPieces;
+        case BLUE:
+            return bluePieces;
+        case BLOCKED:
+            return blockedSquares;
+        default:
+            return emptySquares();
+        }
+    }
+
+    /** Return the mask of empty squares. */
+    long emptySquares() {
+        return ~(redPieces | bluePieces | blockedSquares) & ALL_SQUARES;
+    }
 	
 	
 	// Final Project Part A.1.4 Getting the Winner
@@ -427,72 +673,91 @@ class Board {
 //        return winner;
 //    }
     PieceState getWinner() {
-        if (!couldMove(RED) && !couldMove(BLUE)) {
-            int redNums = getColorNums(RED);
-            int blueNums = getColorNums(BLUE);
+        if (winnerKnown) {
+            return winner;
+        }
+        winnerKnown = true;
+        long reach = grow(grow(emptySquares()));
+        int redNums = getColorNums(RED);
+        int blueNums = getColorNums(BLUE);
+        if ((reach & (redPieces | bluePieces)) == 0
+                || getConsecJumpNums() >= CONSEC_JUMP_LIMIT) {
             if (redNums > blueNums) {
                 winner = RED;
-                return RED;
             } else if (blueNums > redNums) {
                 winner = BLUE;
-                return BLUE;
             } else {
                 winner = EMPTY;
-                return EMPTY;
             }
-        } else if (getColorNums(RED) == 0) {
+        } else if (redNums == 0) {
             winner = BLUE;
-            return BLUE;
-        } else if (getColorNums(BLUE) == 0) {
+        } else if (blueNums == 0) {
             winner = RED;
-            return RED;
-        } else if (getConsecJumpNums() >= 25) {
-            int redNums = getColorNums(RED);
-            int blueNums = getColorNums(BLUE);
-            if (redNums > blueNums) {
-                winner = RED;
-                return RED;
-            } else if (blueNums > redNums) {
-                winner = BLUE;
-                return BLUE;
-            } else {
-                winner = EMPTY;
-                return EMPTY;
-            }
         } else {
             winner = null;
-            return null;
         }
+        return winner;
     }
 
-
-    /** Increment getColorNums(COLOR) by K. */
-    private void incrColorPieces(PieceState color, int k) {
-        colorNum[color.ordinal()] += k;
+    /** Record that the position has changed, so that getWinner() must be
+     *  worked out again the next time it is asked for. */
+    private void positionChanged() {
+        winnerKnown = false;
     }
 
+
     /** The current contents of square CR, where 'a'-2 <= C <= 'g'+2, and
      *  '1'-2 <= R <= '7'+2.  Squares outside the range a1-g7 are all
      *  BLOCKED.  Returns the same value as getContent(index(C, R)). */
     PieceState getContent(char c, char r) {
-        return ataxxBoard[index(c, r)];
+        return getContent(index(c, r));
     }
 
     /** Return the current contents of square with linearized index SQ. */
     PieceState getContent(int sq) {
-        return ataxxBoard[sq];
+        int bit = toBit(sq);
+        if (bit < 0) {
+            return BLOCKED;
+        }
+        long mask = 1L << bit;
+        if ((redPieces & mask) != 0) {
+            return RED;
+        } else if ((bluePieces & mask) != 0) {
+            return BLUE;
+        } else if ((blockedSquares & mask) != 0) {
+            return BLOCKED;
+        }
+        return EMPTY;
     }
 
     /** Set square at C R to V.
      *  This is used for changing contents of the board. */
     public void setContent(char c, char r, PieceState v) {
-        ataxxBoard[index(c, r)] = v;
+        setContent(index(c, r), v);
     }
 
-    /** Set square at linearized index SQ to V.
+    /** Set square at linearized index SQ to V.  Border squares are
+     *  always blocked, so setting them has no effect.
      * This is used for changing contents of the board. */
     private void setContent(int sq, PieceState v) {
-        ataxxBoard[sq] = v;
+        int bit = toBit(sq);
+        if (bit < 0) {
+            return;
+        }
+        long mask = 1L << bit;
+        pieceKey ^= ZOBRIST[getContent(sq).ordinal()][bit]
+                ^ ZOBRIST[v.ordinal()][bit];
+        positionChanged();
+        redPieces &= ~mask;
+        bluePieces &= ~mask;
+        blockedSquares &= ~mask;
+        switch (v) {
+        case RED -> redPieces |= mask;
+        case BLUE -> bluePieces |= mask;
+        case BLOCKED -> blockedSquares |= mask;
+        default -> {
+        }
+        }
     }
 
     /** Return total number of moves and passes since the last
@@ -517,14 +782,7 @@ class Board {
 	 *  @return the number of pieces having the corresponding color.
 	 */
     int getColorNums(PieceState color) {
-        // complete the code
-        int count = 0;
-        for (int i = 0; i < ataxxBoard.length; i++) {
-            if (ataxxBoard[i] == color) {
-                count++;
-            }
-        }
-        return count;
+        return Long.bitCount(pieces(color));
     }
 
     // Please do not change code of the following method.
@@ -539,21 +797,24 @@ class Board {
     /** Use notifier.accept(this) to announce changes to this board. */
     private Consumer<Board> notifier;
 
-    /** For reasons of efficiency in copying the board,
-     *  we use a 1D array to represent it, using the usual access
-     *  algorithm: row r, column c => index(r, c).
+    /** The squares holding red pieces, blue pieces and blocks, one bit
+     *  per square as given by bit(c, r).  Bits 49-63 are always 0.
      *
-     *  Next, instead of using a 7x7 board, we use an 11x11 board in
-     *  which the outer two rows and columns are blocks, and
-     *  row 2, column 2 actually represents row 0, column 0
-     *  of the real board.  As a result of this trick, there is no
-     *  need to special-case being near the edge: we don't move
-     *  off the edge because it looks blocked.
-     *
-     *  Using characters as indices, it follows that if 'a' <= c <= 'g'
-     *  and '1' <= r <= '7', then row r, column c of the board corresponds
-     *  to ataxxBoard[(c -'a' + 2) + 11 (r - '1' + 2) ]. */
-    public PieceState[] ataxxBoard;
+     *  Squares are still addressed from outside with the linearized
+     *  index of an 11x11 board whose outer two rows and columns are
+     *  blocks (see index(c, r)), so that Moves can step off the edge
+     *  and simply find a blocked square. */
+    private long redPieces, bluePieces, blockedSquares;
+
+    /** XOR of ZOBRIST[getContent(sq).ordinal()][bit] over all squares. */
+    private long pieceKey;
+
+    /** Undo records for makeMove, used as a stack of undoSize entries:
+     *  the mask of converted pieces, and the packed move, side to move
+     *  and getConsecJumpNums() before the move, packed into an int. */
+    private long[] undoFlips = new long[UNDO_DEPTH];
+    private int[] undoState = new int[UNDO_DEPTH];
+    private int undoSize;
 
     /** Player that is next to move. */
     private PieceState nextMove;
@@ -565,13 +826,13 @@ class Board {
     /** Total number of unblocked squares. */
     private int unblockedNum = ONESIDE * ONESIDE;
 
-    /** Number of blue and red pieces, indexed by the ordinal positions of
-     *  enumerals BLUE and RED. */
-    private int[] colorNum = new int[BLUE.ordinal() + 1];
-
     /** Set to winner when getAtaxxGame ends (EMPTY if tie).  Otherwise, it is null. */
     private PieceState winner;
 
+    /** True iff winner is up to date with the current position, so that
+     *  repeated calls to getWinner() between moves cost nothing. */
+    private boolean winnerKnown;
+
     /** List of all moves since the last clear or beginning of
      *  the getAtaxxGame. */
     private ArrayList<Move> totalMoves;
@@ -585,4 +846,79 @@ class Board {
 
     /** Number of consecutive non-cloning moves before getAtaxxGame ends. */
     static final int CONSEC_JUMP_LIMIT = 25;
+
+    /** Initial capacity of the undo stack. */
+    private static final int UNDO_DEPTH = 64;
+
+    /** An upper bound on the number of moves generateMoves can produce:
+     *  the number of ordered pairs of distinct squares at most two rows
+     *  and two columns apart. */
+    static final int MAX_MOVES = 792;
+
+    /** Mask of all 49 squares of the board. */
+    static final long ALL_SQUARES = (1L << (ONESIDE * ONESIDE)) - 1;
+
+    /** Squares in column a and column g, respectively. */
+    static final long FILE_A, FILE_G;
+
+    /** Bit numbers of linearized indices (-1 in the border), and the
+     *  linearized indices of bit numbers. */
+    private static final int[] TO_BIT = new int[DEEPER_ONESIDE * DEEPER_ONESIDE],
+        FROM_BIT = new int[ONESIDE * ONESIDE];
+
+    /** For each bit number, the squares one step away (clone
+     *  destinations) and exactly two steps away (jump destinations). */
+    static final long[] CLONE_REACH = new long[ONESIDE * ONESIDE],
+        JUMP_REACH = new long[ONESIDE * ONESIDE];
+
+    /** Zobrist keys, indexed by PieceState ordinal and bit number.  The
+     *  keys of EMPTY are 0, so only occupied squares contribute. */
+    private static final long[][] ZOBRIST =
+        new long[PieceState.values().length][ONESIDE * ONESIDE];
+
+    /** Zobrist keys for blue to move, and for each jump-counter bucket. */
+    private static final long ZOBRIST_BLUE_TO_MOVE;
+    private static final long[] ZOBRIST_JUMPS =
+        new long[CONSEC_JUMP_LIMIT + 1];
+
+    /** Seed for the Zobrist keys; fixed so that keys are the same in every
+     *  run and can be stored. */
+    private static final long ZOBRIST_SEED = 0x41544158584bL;
+
+    static {
+        SplittableRandom keys = new SplittableRandom(ZOBRIST_SEED);
+        for (PieceState v : PieceState.values()) {
+            if (v != EMPTY) {
+                for (int b = 0; b < ONESIDE * ONESIDE; b += 1) {
+                    ZOBRIST[v.ordinal()][b] = keys.nextLong();
+                }
+            }
+        }
+        for (int j = 0; j <= CONSEC_JUMP_LIMIT; j += 1) {
+            ZOBRIST_JUMPS[j] = keys.nextLong();
+        }
+        ZOBRIST_BLUE_TO_MOVE = keys.nextLong();
+
+        long fileA = 0, fileG = 0;
+        for (int r = 0; r < ONESIDE; r += 1) {
+            fileA |= 1L << (r * ONESIDE);
+            fileG |= 1L << (r * ONESIDE + ONESIDE - 1);
+        }
+        FILE_A = fileA;
+        FILE_G = fileG;
+
+        Arrays.fill(TO_BIT, -1);
+        for (char r = '1'; r <= '7'; r += 1) {
+            for (char c = 'a'; c <= 'g'; c += 1) {
+                TO_BIT[index(c, r)] = bit(c, r);
+                FROM_BIT[bit(c, r)] = index(c, r);
+            }
+        }
+
+        for (int b = 0; b < ONESIDE * ONESIDE; b += 1) {
+            long one = grow(1L << b);
+            CLONE_REACH[b] = one & ~(1L << b);
+            JUMP_REACH[b] = grow(one) & ~one;
+        }
+    }
 }
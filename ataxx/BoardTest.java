@@ -0,0 +1,263 @@
+package ataxx;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+
+import static ataxx.PieceState.*;
+import static org.junit.Assert.*;
+
+public class BoardTest {
+
+    private static void createMoves(Board b, String[] moves) {
+        for (String s : moves) {
+            b.createMove(s.charAt(0), s.charAt(1),
+                    s.charAt(3), s.charAt(4));
+        }
+    }
+
+    @Test
+    public void testInitialMasks() {
+        Board b = new Board();
+        assertEquals(RED, b.getContent('a', '7'));
+        assertEquals(RED, b.getContent('g', '1'));
+        assertEquals(BLUE, b.getContent('a', '1'));
+        assertEquals(BLUE, b.getContent('g', '7'));
+        assertEquals(45, Long.bitCount(b.emptySquares()));
+        assertEquals(0L, b.pieces(BLOCKED));
+    }
+
+    @Test
+    public void testBorderIsBlocked() {
+        Board b = new Board();
+        assertEquals(BLOCKED, b.getContent((char) ('a' - 2), '4'));
+        assertEquals(BLOCKED, b.getContent('h', '7'));
+        assertEquals(BLOCKED, b.getContent('d', (char) ('1' - 1)));
+        assertEquals(BLOCKED, b.getContent('i', '9'));
+    }
+
+    @Test
+    public void testReachMasks() {
+        assertEquals(3, Long.bitCount(Board.CLONE_REACH[Board.bit('a', '1')]));
+        assertEquals(8, Long.bitCount(Board.CLONE_REACH[Board.bit('d', '4')]));
+        assertEquals(5, Long.bitCount(Board.JUMP_REACH[Board.bit('a', '1')]));
+        assertEquals(16, Long.bitCount(Board.JUMP_REACH[Board.bit('d', '4')]));
+        assertEquals(0L, Board.CLONE_REACH[Board.bit('g', '4')] & Board.FILE_A);
+        assertEquals(8, Long.bitCount(Board.CLONE_REACH[Board.bit('g', '7')]
+                | Board.JUMP_REACH[Board.bit('g', '7')]));
+    }
+
+    @Test
+    public void testFlipsAndCopy() {
+        Board b = new Board();
+        createMoves(b, new String[] {"a7-b6", "a1-b2", "b6-c5", "b2-b4"});
+        assertEquals(RED, b.getContent('b', '6'));
+        assertEquals(BLUE, b.getContent('c', '5'));
+        assertEquals(3, b.getColorNums(RED));
+        assertEquals(4, b.getColorNums(BLUE));
+        Board copy = new Board(b);
+        assertEquals(b, copy);
+        assertEquals(b.toString(), copy.toString());
+    }
+
+    @Test
+    public void testCouldMoveWhenSurrounded() {
+        Board b = new Board();
+        for (char c = 'a'; c <= 'c'; c++) {
+            for (char r = '1'; r <= '3'; r++) {
+                if (c != 'a' || r != '1') {
+                    b.setContent(c, r, RED);
+                }
+            }
+        }
+        b.setContent('g', '1', EMPTY);
+        b.setContent('a', '7', EMPTY);
+        b.setContent('g', '7', EMPTY);
+        assertFalse(b.couldMove(BLUE));
+        assertTrue(b.couldMove(RED));
+    }
+
+    /** Return the legal non-pass moves for the side to move on B. */
+    static ArrayList<Move> legalMoves(Board b) {
+        ArrayList<Move> moves = new ArrayList<>();
+        for (char c = 'a'; c <= 'g'; c++) {
+            for (char r = '1'; r <= '7'; r++) {
+                if (b.getContent(c, r) != b.nextMove()) {
+                    continue;
+                }
+                for (int dc = -2; dc <= 2; dc++) {
+                    for (int dr = -2; dr <= 2; dr++) {
+                        Move m = Move.move(c, r, (char) (c + dc),
+                                (char) (r + dr));
+                        if ((dc != 0 || dr != 0) && b.moveLegal(m)) {
+                            moves.add(m);
+                        }
+                    }
+                }
+            }
+        }
+        return moves;
+    }
+
+    @Test
+    public void testMakeUndoRestoresBoard() {
+        Random rnd = new Random(204);
+        Board b = new Board();
+        b.setBlock('c', '3');
+        ArrayList<String> before = new ArrayList<>();
+        ArrayList<Integer> jumps = new ArrayList<>();
+        for (int ply = 0; ply < 80; ply++) {
+            before.add(b.toString() + b.nextMove());
+            jumps.add(b.getConsecJumpNums());
+            ArrayList<Move> moves = legalMoves(b);
+            b.makeMove(moves.isEmpty() ? Move.pass()
+                    : moves.get(rnd.nextInt(moves.size())));
+            if (!b.couldMove(RED) && !b.couldMove(BLUE)) {
+                break;
+            }
+        }
+        assertEquals(before.size(), b.undoDepth());
+        for (int i = before.size() - 1; i >= 0; i--) {
+            b.undoMove();
+            assertEquals(before.get(i), b.toString() + b.nextMove());
+            assertEquals((int) jumps.get(i), b.getConsecJumpNums());
+        }
+        assertEquals(0, b.undoDepth());
+    }
+
+    @Test
+    public void testKeyTranspositions() {
+        Board b1 = new Board(), b2 = new Board();
+        createMoves(b1, new String[] {"a7-a6", "a1-a2", "g1-g2", "g7-g6"});
+        createMoves(b2, new String[] {"g1-g2", "g7-g6", "a7-a6", "a1-a2"});
+        assertEquals(b1.key(), b2.key());
+        assertEquals(b1, b2);
+        b2.pass();
+        assertNotEquals(b1.key(), b2.key());
+        assertNotEquals(b1, b2);
+        b2.pass();
+        assertEquals(b1.key(), b2.key());
+    }
+
+    @Test
+    public void testKeyMatchesRebuiltBoard() {
+        Board b = new Board();
+        createMoves(b, new String[] {"a7-b6", "a1-b2", "b6-c5", "b2-c3"});
+        b.setContent('d', '4', BLOCKED);
+        Board rebuilt = new Board();
+        for (char c = 'a'; c <= 'g'; c++) {
+            for (char r = '1'; r <= '7'; r++) {
+                rebuilt.setContent(c, r, b.getContent(c, r));
+            }
+        }
+        assertEquals(b.key(), rebuilt.key());
+        assertNotEquals(new Board().key(), rebuilt.key());
+    }
+
+    @Test
+    public void testKeyRestoredByUndo() {
+        Board b = new Board();
+        long start = b.key();
+        b.makeMove(Move.move("a7-c7"));
+        assertEquals(1, b.getConsecJumpNums());
+        long jumped = b.key();
+        b.makeMove(Move.move("a1-a2"));
+        b.undoMove();
+        assertEquals(jumped, b.key());
+        b.undoMove();
+        assertEquals(start, b.key());
+    }
+
+    @Test
+    public void testWinnerFollowsChanges() {
+        Board b = new Board();
+        assertNull(b.getWinner());
+        for (char c = 'a'; c <= 'g'; c++) {
+            for (char r = '1'; r <= '7'; r++) {
+                if (b.getContent(c, r) == EMPTY) {
+                    b.setContent(c, r, RED);
+                }
+            }
+        }
+        assertEquals(RED, b.getWinner());
+        assertEquals(0L, b.frontier(RED));
+        b.setContent('d', '4', EMPTY);
+        assertNull(b.getWinner());
+        assertEquals(Long.bitCount(Board.CLONE_REACH[Board.bit('d', '4')]
+                | Board.JUMP_REACH[Board.bit('d', '4')]),
+                Long.bitCount(b.frontier(RED)));
+        b.makeMove(Move.move("d3-d4"));
+        assertEquals(RED, b.getWinner());
+        b.undoMove();
+        assertNull(b.getWinner());
+    }
+
+    @Test
+    public void testGenerateMovesMatchesMoveLegal() {
+        Random rnd = new Random(2223);
+        int[] buffer = new int[Board.MAX_MOVES];
+        Board b = new Board();
+        b.setBlock('b', '3');
+        for (int ply = 0; ply < 60 && b.getWinner() == null; ply++) {
+            ArrayList<Move> expected = legalMoves(b);
+            int n = b.generateMoves(buffer);
+            HashSet<Move> generated = new HashSet<>();
+            for (int i = 0; i < n; i++) {
+                generated.add(Move.unpack(buffer[i]));
+            }
+            assertEquals(expected.size(), n);
+            assertEquals(new HashSet<>(expected), generated);
+            assertEquals(n, b.moveCount(b.nextMove()));
+            b.makeMove(n == 0 ? Move.PASS_MOVE : buffer[rnd.nextInt(n)]);
+        }
+    }
+
+    @Test
+    public void testDistinctClones() {
+        Board b = new Board();
+        createMoves(b, new String[] {"a7-b7", "a1-a2", "b7-b6", "a2-b2"});
+        int[] all = new int[Board.MAX_MOVES];
+        int[] distinct = new int[Board.MAX_MOVES];
+        int nAll = b.generateMoves(all);
+        int nDistinct = b.generateMoves(distinct, true);
+        HashSet<Long> fromAll = new HashSet<>();
+        for (int i = 0; i < nAll; i++) {
+            b.makeMove(all[i]);
+            fromAll.add(b.key());
+            b.undoMove();
+        }
+        HashSet<Long> fromDistinct = new HashSet<>();
+        for (int i = 0; i < nDistinct; i++) {
+            Move m = Move.unpack(distinct[i]);
+            b.makeMove(distinct[i]);
+            assertTrue("duplicate position after " + m,
+                    fromDistinct.add(b.key()) || m.isJump());
+            b.undoMove();
+        }
+        assertTrue(nDistinct < nAll);
+        assertEquals(fromAll, fromDistinct);
+    }
+
+    @Test
+    public void testMoveCountChangeMatchesRecount() {
+        int[] moves = new int[Board.MAX_MOVES];
+        for (int seed = 0; seed < 20; seed++) {
+            Board b = SearchTest.randomBoard(seed, 5 * seed);
+            if (b.getWinner() != null) {
+                continue;
+            }
+            int n = b.generateMoves(moves);
+            for (int i = 0; i < n; i++) {
+                int red = b.moveCount(RED), blue = b.moveCount(BLUE);
+                int redChange = b.moveCountChange(moves[i], RED),
+                    blueChange = b.moveCountChange(moves[i], BLUE);
+                b.makeMove(moves[i]);
+                assertEquals(b.moveCount(RED) - red, redChange);
+                assertEquals(b.moveCount(BLUE) - blue, blueChange);
+                b.undoMove();
+            }
+        }
+    }
+}
@@ -19,10 +19,29 @@ class Command {
      *  All other commands are upper-case versions of what the programmer writes. */
     enum CommandType {
         AI("ai\\s+(red|blue)"),
+        /* Record the first PLIES plies of GAMES self-play games in an
+         * opening book FILE. */
+        BOOK("book\\s+(\\d+)\\s+(\\d+)\\s+(\\S+)"),
         BLOCK("block\\s+([a-g][1-7])"),
         MANUAL("manual\\s+(red|blue)"),
+        /* Monte Carlo tree search player for a side. */
+        MCTS("mcts\\s+(red|blue)"),
         /* Regular moves. */
         PIECEMOVE("(-|[a-g][1-7]-[a-g][1-7])"),
+        /* Leaf counts to a depth, optionally on several threads. */
+        PERFT("perft\\s+(\\d+)(?:\\s+(\\d+))?"),
+        /* Solve positions with at most EMPTIES empty squares from GAMES
+         * self-play games, and write them to a tablebase FILE. */
+        TABLEBASE("tablebase\\s+(\\d+)\\s+(\\d+)\\s+(\\S+)"),
+        /* Fit evaluation weights to the outcomes of GAMES self-play games
+         * and write them to FILE. */
+        TUNE("tune\\s+(\\d+)\\s+(\\S+)"),
+        /* Clock time left for each player, in milliseconds. */
+        TIME("time\\s+(\\d+)"),
+        /* Fixed time per AI move, in milliseconds (0 for none). */
+        MOVETIME("movetime\\s+(\\d+)"),
+        /* Seed for the random numbers of players created from now on. */
+        SEED("seed\\s+(\\d+)"),
         QUIT("q|quit"),
         NEW,
         BOARD,
@@ -0,0 +1,305 @@
+package ataxx;
+
+/** An exact solver for positions with few empty squares.  It searches
+ *  every line to the end of the game as Board.getWinner() defines it
+ *  (a full board, a side with no pieces, or CONSEC_JUMP_LIMIT jumps in
+ *  a row) and scores the final position by its exact piece differential
+ *  for the side to move.  It keeps its own TranspositionTable, since its
+ *  scores are not comparable with those of Search, and tries moves into
+ *  regions with an odd number of empty squares before others of the
+ *  same kind, since the side that fills a region last is the one that
+ *  keeps what it took there.
+ *
+ *  Jumps leave the number of empty squares unchanged, so even with few
+ *  of them the game can last a long time, and a solution is not always
+ *  cheap.  Callers should therefore set a time limit and check solved().
+ *  Lines stop early, with an exact score, once the position is settled
+ *  in the sense of Regions. */
+class EndgameSolver implements Searcher {
+
+    /** A solver for the side to move on BOARD with a table of its own. */
+    EndgameSolver(Board board) {
+        this(board, new TranspositionTable(DEFAULT_HASH_SIZE));
+    }
+
+    /** A solver for the side to move on BOARD that records its results
+     *  in TABLE, which must not be shared with Searches. */
+    EndgameSolver(Board board, TranspositionTable table) {
+        this.board = new Board(board);
+        this.table = table;
+    }
+
+    /** Return true iff BOARD has few enough empty squares to solve. */
+    static boolean applies(Board board) {
+        return Long.bitCount(board.emptySquares()) <= EMPTY_THRESHOLD;
+    }
+
+    /** Return the best move (packed) from my position, and make
+     *  bestScore() its exact final piece differential, unless the time
+     *  limit passes or stop() is called first, in which case solved() is
+     *  false and the move is only the best found so far.  Returns
+     *  Move.PASS_MOVE if the side to move has no move. */
+    @Override
+    public int findMove() {
+        long start = System.nanoTime();
+        deadline = timeLimit > 0 ? start + timeLimit * 1000000 : 0;
+        stopped = stopRequested;
+        nodes = 0;
+        solved = false;
+        int[] moves = movesAt(0);
+        int n = board.generateMoves(moves, true);
+        if (n == 0) {
+            bestMove = Move.PASS_MOVE;
+            board.makeMove(Move.PASS_MOVE);
+            bestScore = -solve(-INFINITY, INFINITY, 1);
+            board.undoMove();
+            solved = !stopped;
+            return bestMove;
+        }
+        orderMoves(moves, n,
+                   TranspositionTable.move(table.probe(board.key())));
+        bestMove = moves[0];
+        int alpha = -INFINITY;
+        for (int i = 0; i < n; i += 1) {
+            board.makeMove(moves[i]);
+            int score = -solve(-INFINITY, -alpha, 1);
+            board.undoMove();
+            if (stopped) {
+                return bestMove;
+            }
+            if (score > alpha) {
+                alpha = score;
+                bestMove = moves[i];
+            }
+        }
+        bestScore = alpha;
+        solved = true;
+        return bestMove;
+    }
+
+    /** Return the exact final piece differential, for the side to move,
+     *  of the current position PLY plies from the root, or a bound on it
+     *  if it lies outside ALPHA .. BETA. */
+    private int solve(int alpha, int beta, int ply) {
+        nodes += 1;
+        if (outOfTime()) {
+            return 0;
+        }
+        PieceState winner = board.getWinner();
+        if (winner != null) {
+            PieceState me = board.nextMove();
+            return board.getColorNums(me) - board.getColorNums(me.opposite());
+        }
+        int settled = Regions.settledScore(board);
+        if (settled != Regions.UNSETTLED) {
+            return settled;
+        }
+
+        long key = board.key();
+        long entry = table.probe(key);
+        int tableMove = Move.PASS_MOVE;
+        if (entry != 0) {
+            tableMove = TranspositionTable.move(entry);
+            int score = TranspositionTable.score(entry);
+            switch (TranspositionTable.bound(entry)) {
+            case TranspositionTable.EXACT:
+                return score;
+            case TranspositionTable.LOWER:
+                if (score >= beta) {
+                    return score;
+                }
+                break;
+            default:
+                if (score <= alpha) {
+                    return score;
+                }
+                break;
+            }
+        }
+
+        int[] moves = movesAt(ply);
+        int n = board.generateMoves(moves, true);
+        if (n == 0) {
+            board.makeMove(Move.PASS_MOVE);
+            int score = -solve(-beta, -alpha, ply + 1);
+            board.undoMove();
+            return score;
+        }
+        orderMoves(moves, n, tableMove);
+        int alpha0 = alpha;
+        int best = -INFINITY, bestMove = moves[0];
+        for (int i = 0; i < n; i += 1) {
+            board.makeMove(moves[i]);
+            int score = -solve(-beta, -alpha, ply + 1);
+            board.undoMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = moves[i];
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        int bound = best >= beta ? TranspositionTable.LOWER
+            : best > alpha0 ? TranspositionTable.EXACT
+            : TranspositionTable.UPPER;
+        table.store(key, bestMove, 0, bound, best);
+        return best;
+    }
+
+    /** Sort MOVES[0 .. N-1] so that TABLEMOVE comes first, and the others
+     *  follow by the number of pieces they convert, then with moves into
+     *  odd-sized regions of empty squares first, then clones before
+     *  jumps. */
+    private void orderMoves(int[] moves, int n, int tableMove) {
+        long theirs = board.pieces(board.nextMove().opposite());
+        long odd = oddRegions(board.emptySquares());
+        for (int i = 0; i < n; i += 1) {
+            int move = moves[i];
+            int to = Move.toBit(move);
+            int score;
+            if (move == tableMove) {
+                score = Integer.MAX_VALUE;
+            } else {
+                score = Long.bitCount(Board.CLONE_REACH[to] & theirs) << 2
+                    | ((int) (odd >>> to) & 1) << 1
+                    | (Move.isClone(move) ? 1 : 0);
+            }
+            int j;
+            for (j = i; j > 0 && scores[j - 1] < score; j -= 1) {
+                scores[j] = scores[j - 1];
+                moves[j] = moves[j - 1];
+            }
+            scores[j] = score;
+            moves[j] = move;
+        }
+    }
+
+    /** Return the union of the regions of EMPTY (sets of squares
+     *  connected through neighbouring squares of EMPTY) that have an odd
+     *  number of squares. */
+    static long oddRegions(long empty) {
+        long odd = 0;
+        for (long left = empty, region; left != 0; left &= ~region) {
+            region = Regions.fill(left & -left, empty);
+            if ((Long.bitCount(region) & 1) != 0) {
+                odd |= region;
+            }
+        }
+        return odd;
+    }
+
+    /** Return true iff the search should stop now, checking the clock
+     *  only every CHECK_INTERVAL + 1 positions. */
+    private boolean outOfTime() {
+        if (!stopped && (nodes & CHECK_INTERVAL) == 0) {
+            stopped = stopRequested
+                || (deadline != 0 && System.nanoTime() - deadline > 0);
+        }
+        return stopped;
+    }
+
+    /** Return the move buffer for PLY, creating it if need be. */
+    private int[] movesAt(int ply) {
+        if (ply >= moveStack.length) {
+            int[][] bigger = new int[2 * ply + 1][];
+            System.arraycopy(moveStack, 0, bigger, 0, moveStack.length);
+            moveStack = bigger;
+        }
+        if (moveStack[ply] == null) {
+            moveStack[ply] = new int[Board.MAX_MOVES];
+        }
+        return moveStack[ply];
+    }
+
+    /** Limit findMove to MILLIS milliseconds (0 for no limit). */
+    @Override
+    public void setTimeLimit(long millis) {
+        timeLimit = millis;
+    }
+
+    /** Make the current findMove, if any, return as soon as possible, as
+     *  will any later findMove.  May be called from any thread. */
+    @Override
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /** Return true iff the last findMove finished its solution. */
+    boolean solved() {
+        return solved;
+    }
+
+    /** Return the final piece differential, for the side to move at the
+     *  root, after the best play found by the last findMove. */
+    @Override
+    public int bestScore() {
+        return bestScore;
+    }
+
+    /** Return the number of empty squares at the root if the last
+     *  findMove solved it, and otherwise 0. */
+    @Override
+    public int completedDepth() {
+        return solved ? Long.bitCount(board.emptySquares()) : 0;
+    }
+
+    /** Return the number of positions visited by the last findMove. */
+    @Override
+    public long nodes() {
+        return nodes;
+    }
+
+    /** Positions with at most this many empty squares are solved. */
+    static final int EMPTY_THRESHOLD = 4;
+
+    /** Size in megabytes of the table a solver makes for itself. */
+    static final int DEFAULT_HASH_SIZE = 4;
+
+    /** Beyond every piece differential. */
+    private static final int INFINITY = 64;
+
+    /** The clock is checked when (nodes & CHECK_INTERVAL) == 0. */
+    private static final int CHECK_INTERVAL = 1023;
+
+    /** My private board. */
+    private final Board board;
+
+    /** My results. */
+    private final TranspositionTable table;
+
+    /** Move buffers, indexed by ply from the root. */
+    private int[][] moveStack = new int[16][];
+
+    /** Scores of the moves being sorted by orderMoves. */
+    private final int[] scores = new int[Board.MAX_MOVES];
+
+    /** Results of the last findMove. */
+    private int bestMove, bestScore;
+
+    /** True iff the last findMove finished. */
+    private boolean solved;
+
+    /** Positions visited by the last findMove. */
+    private long nodes;
+
+    /** Time limit in milliseconds, or 0 for none. */
+    private long timeLimit;
+
+    /** System.nanoTime() at which the current findMove must stop, or 0
+     *  for no limit. */
+    private long deadline;
+
+    /** True once the current findMove has run out of time or been
+     *  stopped. */
+    private boolean stopped;
+
+    /** Set by stop(), possibly from another thread. */
+    private volatile boolean stopRequested;
+}
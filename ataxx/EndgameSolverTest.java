@@ -0,0 +1,99 @@
+package ataxx;
+
+import org.junit.Test;
+
+import static ataxx.PieceState.*;
+import static org.junit.Assert.*;
+
+public class EndgameSolverTest {
+
+    /** Return a full board with RED in the five-by-five square around d4
+     *  and BLUE elsewhere, except that d4 is empty. */
+    static Board ringBoard() {
+        Board b = new Board();
+        for (char c = 'a'; c <= 'g'; c++) {
+            for (char r = '1'; r <= '7'; r++) {
+                boolean inner = Math.abs(c - 'd') <= 2
+                    && Math.abs(r - '4') <= 2;
+                b.setContent(c, r, inner ? RED : BLUE);
+            }
+        }
+        b.setContent('d', '4', EMPTY);
+        return b;
+    }
+
+    @Test
+    public void testOddRegions() {
+        long a1 = 1L << Board.bit('a', '1'), b2 = 1L << Board.bit('b', '2');
+        long c3 = 1L << Board.bit('c', '3'), g7 = 1L << Board.bit('g', '7');
+        assertEquals(g7, EndgameSolver.oddRegions(a1 | b2 | g7));
+        assertEquals(a1 | b2 | c3, EndgameSolver.oddRegions(a1 | b2 | c3));
+        assertEquals(0L, EndgameSolver.oddRegions(0L));
+    }
+
+    @Test
+    public void testApplies() {
+        assertFalse(EndgameSolver.applies(new Board()));
+        assertTrue(EndgameSolver.applies(ringBoard()));
+    }
+
+    @Test
+    public void testFillsLastSquare() {
+        Board b = ringBoard();
+        EndgameSolver solver = new EndgameSolver(b);
+        solver.setTimeLimit(10000);
+        Move move = Move.unpack(solver.findMove());
+        assertTrue(solver.solved());
+        assertEquals(1, solver.bestScore());
+        assertTrue(move.isClone());
+        b.makeMove(move);
+        assertEquals(RED, b.getWinner());
+    }
+
+    @Test
+    public void testStopsAtTimeLimit() {
+        Board b = SearchTest.randomBoard(1, 6);
+        EndgameSolver solver = new EndgameSolver(b);
+        solver.setTimeLimit(100);
+        long start = System.currentTimeMillis();
+        int move = solver.findMove();
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        assertFalse(solver.solved());
+        assertTrue(b.moveLegal(Move.unpack(move)));
+    }
+
+    @Test
+    public void testJumpEndsGameAtLimit() {
+        Board b = RegionsTest.jumpLimitBoard();
+        EndgameSolver solver = new EndgameSolver(b);
+        solver.setTimeLimit(10000);
+        Move move = Move.unpack(solver.findMove());
+        assertTrue(solver.solved());
+        assertEquals(0, solver.bestScore());
+        assertEquals(Move.move("a7-c7"), move);
+        b.makeMove(move);
+        assertEquals(EMPTY, b.getWinner());
+    }
+
+    @Test
+    public void testReplyEndsGameAtLimit() {
+        Board b = RegionsTest.layout(
+            RegionsTest.afterJumps(Board.CONSEC_JUMP_LIMIT - 2),
+            "bX----X",
+            "bXXXXXX",
+            "XXXXXXX",
+            "XXXXXXX",
+            "XXXXXXX",
+            "XXXXXXX",
+            "XXXrr--");
+        assertEquals(BLUE, b.nextMove());
+        EndgameSolver solver = new EndgameSolver(b);
+        solver.setTimeLimit(10000);
+        Move move = Move.unpack(solver.findMove());
+        assertTrue(solver.solved());
+        assertEquals(0, solver.bestScore());
+        assertTrue(move.isJump());
+        b.makeMove(move);
+        assertEquals(Regions.UNSETTLED, Regions.settledScore(b));
+    }
+}
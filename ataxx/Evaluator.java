@@ -0,0 +1,21 @@
+package ataxx;
+
+/** A static evaluation of Ataxx positions and moves, used by Searches at
+ *  their leaves and by one-ply AIPlayers to choose among their moves.
+ *  An Evaluator may be shared by several threads, so implementations
+ *  must not change once in use. */
+interface Evaluator {
+
+    /** Return the value of the position on BOARD, which is not over, for
+     *  its side to move.  Larger is better. */
+    int evaluate(Board board);
+
+    /** Return the value for the side to move on BOARD of making the
+     *  packed MOVE, a legal move other than a pass, judged one ply
+     *  ahead.  CONTROL and MOBILITY are the numbers of pieces and of
+     *  moves of the side to move less those of its opponent on BOARD,
+     *  from which an implementation may work out their values after
+     *  MOVE by the changes it makes, rather than recounting them.
+     *  BOARD is left unchanged. */
+    int evaluateMove(Board board, int move, int control, int mobility);
+}
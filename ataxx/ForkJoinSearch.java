@@ -0,0 +1,428 @@
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/** An iterative-deepening alpha-beta search that splits the tree among
+ *  the threads of a ForkJoinPool ("young brothers wait"): at each node
+ *  at least SPLIT_DEPTH plies from the leaves, the first move is searched
+ *  alone, and the remaining moves are then forked as tasks that idle
+ *  threads steal, each on its own copy of the Board.  Nearer the leaves,
+ *  a task searches serially, making and taking back moves on its board.
+ *  Results are shared through a TranspositionTable, as for Search, and
+ *  moves are ordered by Search's heuristics, with killer moves and
+ *  history scores kept by each thread.  Forked tasks read the best score
+ *  of the node that forked them as they start, so that those started
+ *  after it improves search a narrower window.  Solved positions are
+ *  taken from a Tablebase, if one is set, as in Search. */
+class ForkJoinSearch implements Searcher {
+
+    /** A search for the side to move on BOARD to at most MAXDEPTH plies,
+     *  recording results in TABLE and using THREADS threads. */
+    ForkJoinSearch(Board board, int maxDepth, TranspositionTable table,
+                   int threads) {
+        this.board = new Board(board);
+        this.maxDepth = maxDepth;
+        this.table = table;
+        this.threads = threads;
+    }
+
+    @Override
+    public int findMove() {
+        long start = System.nanoTime();
+        deadline = timeLimit > 0 ? start + timeLimit * 1000000 : 0;
+        stopped = stopRequested;
+        nodes.reset();
+        completedDepth = 0;
+        bestScore = 0;
+        symmetric = Symmetry.symmetries(board) != 1;
+        int[] moves = new int[Board.MAX_MOVES];
+        int n = board.generateMoves(moves, true);
+        Search.moveToFront(moves, n,
+                TranspositionTable.move(table.probe(board.key())));
+        bestMove = n == 0 ? Move.PASS_MOVE : moves[0];
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (int depth = 1; depth <= maxDepth && !stopped; depth += 1) {
+                int d = depth;
+                pool.invoke(ForkJoinTask.adapt(() -> searchRoot(d)));
+                if (!stopped) {
+                    completedDepth = depth;
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return bestMove;
+    }
+
+    /** Search the root to DEPTH plies, updating bestMove and bestScore.
+     *  The best move so far is searched first and alone, and the others
+     *  then in parallel against its score.  As in Search, moves that are
+     *  mirror images of others under the symmetries of the root are
+     *  skipped. */
+    private void searchRoot(int depth) {
+        Board root = new Board(board);
+        int[] moves = new int[Board.MAX_MOVES];
+        int n = root.generateMoves(moves, true);
+        if (symmetric) {
+            n = Symmetry.distinctMoves(root, moves, n);
+        }
+        if (n == 0) {
+            root.makeMove(Move.PASS_MOVE);
+            int score = -search(root, depth - 1, -Search.INFINITY,
+                                Search.INFINITY, 1);
+            if (!stopped) {
+                bestScore = score;
+            }
+            return;
+        }
+        Heuristics h = heuristics.get();
+        Search.orderMoves(root, moves, n, bestMove, h.killers[0],
+                          h.killers[1], h.history, h.scores);
+        root.makeMove(moves[0]);
+        int alpha = -search(root, depth - 1, -Search.INFINITY,
+                            Search.INFINITY, 1);
+        root.undoMove();
+        if (stopped) {
+            return;
+        }
+        int best = moves[0];
+        AtomicInteger shared = new AtomicInteger(alpha);
+        List<Node> siblings = fork(root, moves, 1, n, depth - 1,
+                                   -Search.INFINITY, -alpha, 1, shared);
+        for (int i = 1; i < n; i += 1) {
+            int score = -siblings.get(i - 1).join();
+            if (stopped) {
+                return;
+            }
+            if (score > alpha) {
+                alpha = score;
+                best = moves[i];
+                shared.set(alpha);
+            }
+        }
+        bestMove = best;
+        bestScore = alpha;
+        table.store(root.key(), best, depth, TranspositionTable.EXACT,
+                    Search.toTable(alpha, 0));
+    }
+
+    /** Return the negamax value for the side to move of BOARD searched
+     *  DEPTH more plies, PLY plies from the root, within ALPHA .. BETA,
+     *  splitting the work among threads if DEPTH >= SPLIT_DEPTH. */
+    private int search(Board board, int depth, int alpha, int beta,
+                       int ply) {
+        if (outOfTime()) {
+            return 0;
+        }
+        PieceState winner = board.getWinner();
+        if (winner != null) {
+            return Search.terminalScore(board, winner, ply);
+        }
+        if (tablebase != null && depth > 1
+            && Long.bitCount(board.emptySquares()) <= tablebase.maxEmpties()) {
+            int entry = tablebase.probe(board.key());
+            if (entry != Tablebase.NONE) {
+                return Search.tablebaseScore(Tablebase.score(entry), ply);
+            }
+        }
+        if (depth <= 0) {
+            return evaluator.evaluate(board);
+        }
+
+        int t = symmetric && depth >= Search.MIRROR_DEPTH
+            ? Symmetry.canonical(board) : 0;
+        long key = Symmetry.key(board, t);
+        long entry = table.probe(key);
+        int tableMove = Move.PASS_MOVE;
+        if (entry != 0) {
+            tableMove = Symmetry.move(TranspositionTable.move(entry),
+                                      Symmetry.inverse(t));
+            if (TranspositionTable.depth(entry) >= depth) {
+                int score = Search.fromTable(TranspositionTable.score(entry),
+                                             ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                    || (bound == TranspositionTable.LOWER && score >= beta)
+                    || (bound == TranspositionTable.UPPER
+                        && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        boolean split = depth >= SPLIT_DEPTH;
+        int[] moves = split ? new int[Board.MAX_MOVES]
+            : movesAt(ply);
+        int n = board.generateMoves(moves, true);
+        if (n == 0) {
+            board.makeMove(Move.PASS_MOVE);
+            int score = -search(board, depth - 1, -beta, -alpha, ply + 1);
+            board.undoMove();
+            return score;
+        }
+        Heuristics h = heuristics.get();
+        Search.orderMoves(board, moves, n, tableMove, h.killers[2 * ply],
+                          h.killers[2 * ply + 1], h.history, h.scores);
+        int alpha0 = alpha;
+        int best = -Search.INFINITY, bestMove = moves[0];
+        int serial = split ? 1 : n;
+        for (int i = 0; i < serial && alpha < beta; i += 1) {
+            board.makeMove(moves[i]);
+            int score = -search(board, depth - 1, -beta, -alpha, ply + 1);
+            board.undoMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = moves[i];
+                alpha = Math.max(alpha, score);
+                if (alpha >= beta) {
+                    Search.recordCutoff(board, moves[i], depth, ply,
+                                        h.killers, h.history);
+                }
+            }
+        }
+        if (split && alpha < beta && n > 1) {
+            AtomicInteger shared = new AtomicInteger(alpha);
+            List<Node> siblings = fork(board, moves, 1, n, depth - 1,
+                                       -beta, -alpha, ply + 1, shared);
+            for (int i = 1; i < n; i += 1) {
+                Node sibling = siblings.get(i - 1);
+                if (alpha >= beta) {
+                    sibling.cancel(false);
+                    continue;
+                }
+                int score = -sibling.join();
+                if (stopped) {
+                    return 0;
+                }
+                if (score > best) {
+                    best = score;
+                    bestMove = moves[i];
+                    alpha = Math.max(alpha, score);
+                    shared.set(alpha);
+                    if (alpha >= beta) {
+                        Search.recordCutoff(board, moves[i], depth, ply,
+                                            h.killers, h.history);
+                    }
+                }
+            }
+        }
+        int bound = best >= beta ? TranspositionTable.LOWER
+            : best > alpha0 ? TranspositionTable.EXACT
+            : TranspositionTable.UPPER;
+        table.store(key, Symmetry.move(bestMove, t), depth, bound,
+                    Search.toTable(best, ply));
+        return best;
+    }
+
+    /** Fork and return tasks searching the positions after each of
+     *  MOVES[FROM .. TO-1] on copies of BOARD, DEPTH plies deep within
+     *  ALPHA .. BETA, at PLY, where SHARED holds the alpha of the forking
+     *  node as it rises. */
+    private List<Node> fork(Board board, int[] moves, int from, int to,
+                            int depth, int alpha, int beta, int ply,
+                            AtomicInteger shared) {
+        List<Node> tasks = new ArrayList<>(to - from);
+        for (int i = from; i < to; i += 1) {
+            Board child = new Board(board);
+            child.makeMove(moves[i]);
+            Node task = new Node(child, depth, alpha, beta, ply, shared);
+            task.fork();
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    /** A task searching one position on its own board. */
+    private class Node extends RecursiveTask<Integer> {
+
+        /** Tasks are never serialized, but RecursiveTask is
+         *  Serializable. */
+        private static final long serialVersionUID = 1L;
+
+        /** A task for search(BOARD, DEPTH, ALPHA, BETA, PLY), whose beta
+         *  is lowered to minus the value of PARENTALPHA, the forking
+         *  node's alpha, when it starts. */
+        Node(Board board, int depth, int alpha, int beta, int ply,
+             AtomicInteger parentAlpha) {
+            this.board = board;
+            this.depth = depth;
+            this.alpha = alpha;
+            this.beta = beta;
+            this.ply = ply;
+            this.parentAlpha = parentAlpha;
+        }
+
+        @Override
+        protected Integer compute() {
+            int bound = Math.min(beta, -parentAlpha.get());
+            if (alpha >= bound) {
+                return bound;
+            }
+            return search(board, depth, alpha, bound, ply);
+        }
+
+        /** The position searched. */
+        private final Board board;
+
+        /** Arguments to search. */
+        private final int depth, alpha, beta, ply;
+
+        /** The alpha of the node that forked me. */
+        private final AtomicInteger parentAlpha;
+    }
+
+    /** Count a position, and return true iff the search should stop,
+     *  checking the clock now and then. */
+    private boolean outOfTime() {
+        nodes.increment();
+        int[] count = counts.get();
+        count[0] += 1;
+        if (!stopped && (count[0] & CHECK_INTERVAL) == 0) {
+            stopped = stopRequested
+                || (deadline != 0 && System.nanoTime() - deadline > 0);
+        }
+        return stopped;
+    }
+
+    /** Return this thread's move buffer for PLY in serial searches.  A
+     *  thread only steals tasks while waiting at a splitting node, whose
+     *  moves are in an array of its own, so serial searches on one thread
+     *  never overlap. */
+    private int[] movesAt(int ply) {
+        int[][] stack = moveStacks.get();
+        if (ply >= stack.length) {
+            stack = Arrays.copyOf(stack, 2 * ply + 1);
+            moveStacks.set(stack);
+        }
+        if (stack[ply] == null) {
+            stack[ply] = new int[Board.MAX_MOVES];
+        }
+        return stack[ply];
+    }
+
+    /** One thread's move-ordering state, as in Search. */
+    private class Heuristics {
+
+        /** Heuristics with no killer moves and no history yet. */
+        Heuristics() {
+            killers = new int[2 * (Math.max(maxDepth, 0) + 1)];
+            Arrays.fill(killers, Move.PASS_MOVE);
+        }
+
+        /** Two killer moves for each ply. */
+        private final int[] killers;
+
+        /** History scores of each side's packed moves. */
+        private final int[] history = new int[2 * Search.HISTORY_SIZE];
+
+        /** Scores of the moves being ordered.  A thread orders a node's
+         *  moves before it can steal tasks there. */
+        private final int[] scores = new int[Board.MAX_MOVES];
+    }
+
+    @Override
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    @Override
+    public void setEvaluator(Evaluator evaluator) {
+        this.evaluator = evaluator;
+    }
+
+    @Override
+    public void setTimeLimit(long millis) {
+        timeLimit = millis;
+    }
+
+    @Override
+    public void stop() {
+        stopRequested = true;
+        stopped = true;
+    }
+
+    @Override
+    public int bestScore() {
+        return bestScore;
+    }
+
+    @Override
+    public int completedDepth() {
+        return completedDepth;
+    }
+
+    @Override
+    public long nodes() {
+        return nodes.sum();
+    }
+
+    /** Nodes at least this many plies from the leaves are split. */
+    static final int SPLIT_DEPTH = 3;
+
+    /** The clock is checked when a thread's count & CHECK_INTERVAL is 0. */
+    private static final int CHECK_INTERVAL = 1023;
+
+    /** The root position. */
+    private final Board board;
+
+    /** The maximum depth to search. */
+    private final int maxDepth;
+
+    /** Shared results. */
+    private final TranspositionTable table;
+
+    /** Solved positions, or null if none.  They are looked up as in
+     *  Search. */
+    private Tablebase tablebase;
+
+    /** Values the positions at the leaves. */
+    private Evaluator evaluator = WeightedEvaluator.DEFAULT;
+
+    /** Number of threads in the pool. */
+    private final int threads;
+
+    /** Per-thread move buffers for serial searches, indexed by ply. */
+    private final ThreadLocal<int[][]> moveStacks =
+        ThreadLocal.withInitial(() -> new int[16][]);
+
+    /** Per-thread move-ordering state. */
+    private final ThreadLocal<Heuristics> heuristics =
+        ThreadLocal.withInitial(Heuristics::new);
+
+    /** Per-thread position counts, for timing clock checks. */
+    private final ThreadLocal<int[]> counts =
+        ThreadLocal.withInitial(() -> new int[1]);
+
+    /** Positions visited by the last findMove. */
+    private final LongAdder nodes = new LongAdder();
+
+    /** True iff the root of the current findMove is symmetric, in which
+     *  case mirror-image positions share table entries, as in Search. */
+    private boolean symmetric;
+
+    /** Results of the last findMove. */
+    private volatile int bestMove, bestScore, completedDepth;
+
+    /** Time limit in milliseconds, or 0 for none. */
+    private long timeLimit;
+
+    /** System.nanoTime() deadline, or 0 for none. */
+    private volatile long deadline;
+
+    /** True once the search has run out of time or been stopped. */
+    private volatile boolean stopped;
+
+    /** Set by stop(). */
+    private volatile boolean stopRequested;
+}
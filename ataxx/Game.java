@@ -1,5 +1,9 @@
 package ataxx;
 
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import static ataxx.PieceState.*;
@@ -17,6 +21,7 @@ class Game {
         this.view = view;
         this.reporter = reporter;
         seed = (long) (Math.random() * Long.MAX_VALUE);
+        Arrays.fill(clocks, -1);
         ataxxBoard = new Board();
         ataxxBoard.setNotifier((b) -> this.view.update(b));
     }
@@ -47,18 +52,24 @@ class Game {
             if (ataxxBoard.getWinner() == null) {
                 winnerAnnounced = false;
                 try {
-                    runCommand(getAtaxxPlayer(ataxxBoard.nextMove()).getAtaxxMove());
+                    PieceState mover = ataxxBoard.nextMove();
+                    long start = System.currentTimeMillis();
+                    String command = getAtaxxPlayer(mover).getAtaxxMove();
+                    chargeTime(mover, System.currentTimeMillis() - start);
+                    runCommand(command);
                 } catch (GameException e) {
                     reportError(e.getMessage());
                 }
             } else if (!gameNotOver()) {
                 if (!winnerAnnounced) {
+                    stopThinking();
                     reporter.announceWinner(ataxxBoard.getWinner());
                     winnerAnnounced = true;
                 }
                 runCommand(getCommand("-> "));
             }
         }
+        stopThinking();
         return exit;
     }
 
@@ -86,6 +97,7 @@ class Game {
         if (!place.matches("[a-i][1-9]")) {
             throw error("invalid square designation");
         }
+        stopThinking();
         ataxxBoard.setBlock(place.charAt(0), place.charAt(1));
         if (board_on) {
             printBoard();
@@ -93,6 +105,26 @@ class Game {
 
     }
 
+    /** Report the number of leaf nodes DEPTH plies below the current
+     *  position after each move and in total, with the speed of the count,
+     *  sharing the work among THREADS threads. */
+    void perft(int depth, int threads) {
+        if (depth < 1) {
+            throw error("perft depth must be at least 1");
+        }
+        long start = System.nanoTime();
+        Map<Move, Long> counts = Perft.divide(ataxxBoard, depth,
+                                              Math.max(threads, 1));
+        long total = 0;
+        for (Map.Entry<Move, Long> count : counts.entrySet()) {
+            reporter.message("%s: %d", count.getKey(), count.getValue());
+            total += count.getValue();
+        }
+        double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+        reporter.message("Nodes: %d, %.3f s, %.0f nodes/s",
+                         total, seconds, total / seconds);
+    }
+
     /** Get the current number of BLUE and RED color pieces respectively in the board. */
     void getScore(){
         System.out.println(ataxxBoard.getScore());
@@ -104,9 +136,197 @@ class Game {
         reporter.announceMove(move, player);
     }
 
+    /** Seed the random numbers of the players, self-play games and random
+     *  games created from now on from SEED, so that the same commands
+     *  with the same seed give the same games. */
+    void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /** Set the number of plies that AIPlayers created from now on search
+     *  ahead to DEPTH. */
+    void setAIDepth(int depth) {
+        aiDepth = depth;
+    }
+
+    /** Make MCTSPlayers created from now on run PLAYOUTS playouts per
+     *  move (MCTSPlayer.DEFAULT_PLAYOUTS if PLAYOUTS is 0). */
+    void setPlayouts(int playouts) {
+        this.playouts = playouts;
+    }
+
+    /** Make AIPlayers think on their opponents' time iff ON. */
+    void setPondering(boolean on) {
+        pondering = on;
+    }
+
+    /** Return true iff AIPlayers think on their opponents' time. */
+    boolean pondering() {
+        return pondering;
+    }
+
+    /** Make AIPlayers search with THREADS threads from now on. */
+    void setSearchThreads(int threads) {
+        searchThreads = Math.max(threads, 1);
+    }
+
+    /** Return the number of threads AIPlayers search with. */
+    int searchThreads() {
+        return searchThreads;
+    }
+
+    /** Make AIPlayers that search with several threads split the tree
+     *  among them (ForkJoinSearch) iff ON, rather than have each search
+     *  all of it (LazySMP). */
+    void setForkJoin(boolean on) {
+        forkJoin = on;
+    }
+
+    /** Return true iff multi-threaded AIPlayers split the tree. */
+    boolean forkJoin() {
+        return forkJoin;
+    }
+
+    /** Set the clock of each player to MILLIS milliseconds. */
+    void setClock(long millis) {
+        clocks[RED.ordinal()] = clocks[BLUE.ordinal()] = millis;
+    }
+
+    /** Limit each AI move to MILLIS milliseconds; 0 removes the limit. */
+    void setMoveTime(long millis) {
+        moveTime = millis;
+    }
+
+    /** Return the number of milliseconds the player of COLOR may spend
+     *  on its next move, or 0 if there is no time control: the fixed move
+     *  time, or a share of the time left on its clock, whichever is less. */
+    long moveBudget(PieceState color) {
+        long budget = moveTime;
+        long left = clocks[color.ordinal()];
+        if (left >= 0) {
+            long share = Math.max(left / MOVES_TO_GO, 1);
+            budget = budget == 0 ? share : Math.min(budget, share);
+        }
+        return budget;
+    }
+
+    /** Take MILLIS milliseconds off the clock of the player of COLOR, if
+     *  it has one. */
+    private void chargeTime(PieceState color, long millis) {
+        int k = color.ordinal();
+        if (clocks[k] >= 0) {
+            clocks[k] = Math.max(clocks[k] - millis, 0);
+        }
+    }
+
+    /** Make AIPlayers take the results of positions in the tablebase
+     *  FILE from it. */
+    void setTablebase(String file) {
+        tablebase = new Tablebase(Paths.get(file));
+    }
+
+    /** Return the tablebase my AIPlayers use, or null if none. */
+    Tablebase getTablebase() {
+        return tablebase;
+    }
+
+    /** Write to FILE a tablebase of the positions with at most EMPTIES
+     *  empty squares that arise in GAMES self-play games from the current
+     *  position, searched to the depth of new AIPlayers, played and
+     *  solved on searchThreads() threads, and report how many were
+     *  solved. */
+    private void generateTablebase(int empties, int games, String file) {
+        TablebaseGenerator generator =
+            new TablebaseGenerator(empties, aiDepth, searchThreads,
+                                   TABLEBASE_TIME_LIMIT);
+        List<Board> positions =
+            generator.collect(ataxxBoard, games, seed);
+        long start = System.currentTimeMillis();
+        int solved = generator.generate(positions, Paths.get(file));
+        reporter.message("%d of %d positions solved in %d ms", solved,
+                         positions.size(),
+                         System.currentTimeMillis() - start);
+    }
+
+    /** Make AIPlayers and their searches use the weights in FILE (see
+     *  WeightedEvaluator) to evaluate positions and moves. */
+    void setEvaluator(String file) {
+        evaluator = new WeightedEvaluator(Paths.get(file));
+    }
+
+    /** Return the Evaluator my AIPlayers use. */
+    Evaluator getEvaluator() {
+        return evaluator;
+    }
+
+    /** Write to FILE the weights of my Evaluator fitted to the outcomes
+     *  of GAMES self-play games from the current position, searched to
+     *  the depth of new AIPlayers on searchThreads() threads, and report
+     *  the improvement.  The fitting starts from the weights of my
+     *  Evaluator if it is a WeightedEvaluator, and otherwise from the
+     *  default weights. */
+    private void tune(int games, String file) {
+        Tuner tuner = new Tuner(aiDepth, searchThreads);
+        long start = System.currentTimeMillis();
+        tuner.collect(ataxxBoard, games, seed);
+        WeightedEvaluator weights = evaluator instanceof WeightedEvaluator
+            ? (WeightedEvaluator) evaluator : WeightedEvaluator.DEFAULT;
+        tuner.tune(weights).write(Paths.get(file));
+        reporter.message("%d positions, loss %.5f to %.5f in %d ms",
+                         tuner.size(), tuner.startLoss(), tuner.endLoss(),
+                         System.currentTimeMillis() - start);
+    }
+
+    /** Make AIPlayers play the moves of the opening book FILE. */
+    void setBook(String file) {
+        book = new OpeningBook(Paths.get(file));
+    }
+
+    /** Return the opening book my AIPlayers use, or null if none. */
+    OpeningBook getBook() {
+        return book;
+    }
+
+    /** Write to FILE an opening book of the first PLIES plies of GAMES
+     *  self-play games from the current position, searched to the depth
+     *  of new AIPlayers on searchThreads() threads, and report its
+     *  size. */
+    private void buildBook(int games, int plies, String file) {
+        OpeningBookBuilder builder =
+            new OpeningBookBuilder(plies, aiDepth, searchThreads);
+        long start = System.currentTimeMillis();
+        builder.play(ataxxBoard, games, seed);
+        int records = builder.write(Paths.get(file));
+        reporter.message("%d book moves from %d games in %d ms", records,
+                         games, System.currentTimeMillis() - start);
+    }
+
+    /** Use a transposition table of MEGABYTES megabytes for AIPlayers'
+     *  searches from now on. */
+    void setHashSize(int megabytes) {
+        hashSize = megabytes;
+        table = null;
+    }
+
+    /** Return the transposition table shared by my AIPlayers' searches,
+     *  creating it on first use. */
+    TranspositionTable getTranspositionTable() {
+        if (table == null) {
+            table = new TranspositionTable(hashSize);
+        }
+        return table;
+    }
+
     /** Make the player of COLOR an AIPlayer for subsequent moves. */
     private void setAI(PieceState color) {
-        setAtaxxPlayer(color, new AIPlayer(this, color, seed));
+        setAtaxxPlayer(color, new AIPlayer(this, color, seed, aiDepth));
+        seed += 1;
+    }
+
+    /** Make the player of COLOR an MCTSPlayer for subsequent moves. */
+    private void setMCTS(PieceState color) {
+        setAtaxxPlayer(color, new MCTSPlayer(this, color, seed, playouts,
+                                             searchThreads));
         seed += 1;
     }
 
@@ -117,17 +337,38 @@ class Game {
     }
 
     /** Return the Player playing COLOR. */
-    private Player getAtaxxPlayer(PieceState color) {
+    Player getAtaxxPlayer(PieceState color) {
         return ataxxPlayers[color.ordinal()];
     }
 
+    /** Return true iff the player of COLOR is automated. */
+    boolean isAutoPlayer(PieceState color) {
+        Player player = getAtaxxPlayer(color);
+        return player != null && player.isAuto();
+    }
+
     /** Set getAtaxxPlayer(COLOR) to PLAYER. */
     private void setAtaxxPlayer(PieceState color, Player player) {
+        Player old = getAtaxxPlayer(color);
+        if (old != null) {
+            old.stopThinking();
+        }
         ataxxPlayers[color.ordinal()] = player;
     }
 
+    /** Stop my players from thinking in the background about positions
+     *  that may no longer arise. */
+    private void stopThinking() {
+        for (Player player : ataxxPlayers) {
+            if (player != null) {
+                player.stopThinking();
+            }
+        }
+    }
+
     /** Clear the board to its initial state. */
     void clear() {
+        stopThinking();
         ataxxBoard.clear();
     }
 
@@ -154,6 +395,9 @@ class Game {
                 case AI:
                     setAI(colorParse(parts[0]));
                     break;
+                case MCTS:
+                    setMCTS(colorParse(parts[0]));
+                    break;
                 case BLOCK:
                     block(parts[0]);
                     break;
@@ -163,6 +407,30 @@ class Game {
                 case SCORE:
                     getScore();
                     break;
+                case TIME:
+                    setClock(Long.parseLong(parts[0]));
+                    break;
+                case MOVETIME:
+                    setMoveTime(Long.parseLong(parts[0]));
+                    break;
+                case SEED:
+                    setSeed(Long.parseLong(parts[0]));
+                    break;
+                case TUNE:
+                    tune(Integer.parseInt(parts[0]), parts[1]);
+                    break;
+                case BOOK:
+                    buildBook(Integer.parseInt(parts[0]),
+                              Integer.parseInt(parts[1]), parts[2]);
+                    break;
+                case TABLEBASE:
+                    generateTablebase(Integer.parseInt(parts[0]),
+                                      Integer.parseInt(parts[1]), parts[2]);
+                    break;
+                case PERFT:
+                    perft(Integer.parseInt(parts[0]),
+                          parts[1] == null ? 1 : Integer.parseInt(parts[1]));
+                    break;
                 case BOARD_ON:
                     board_on = true;
                     break;
@@ -214,6 +482,53 @@ class Game {
      */
     private long seed;
 
+    /** Search depth of new AIPlayers. */
+    private int aiDepth = AIPlayer.DEFAULT_DEPTH;
+
+    /** True iff AIPlayers ponder. */
+    private boolean pondering;
+
+    /** Playouts per move of new MCTSPlayers. */
+    private int playouts;
+
+    /** Number of threads used by AIPlayers' searches. */
+    private int searchThreads = 1;
+
+    /** True iff multi-threaded searches use ForkJoinSearch. */
+    private boolean forkJoin;
+
+    /** Size of the transposition table in megabytes. */
+    private int hashSize = DEFAULT_HASH_SIZE;
+
+    /** Tablebase used by AIPlayers, or null if none. */
+    private Tablebase tablebase;
+
+    /** Evaluator used by AIPlayers. */
+    private Evaluator evaluator = WeightedEvaluator.DEFAULT;
+
+    /** Opening book used by AIPlayers, or null if none. */
+    private OpeningBook book;
+
+    /** Milliseconds allowed for solving each tablebase position. */
+    static final long TABLEBASE_TIME_LIMIT = 1000;
+
+    /** Transposition table shared by AIPlayers, or null if not yet
+     *  created. */
+    private TranspositionTable table;
+
+    /** Milliseconds left on each player's clock, indexed by color, or -1
+     *  if there is no clock. */
+    private final long[] clocks = new long[PieceState.values().length];
+
+    /** Fixed time per AI move in milliseconds, or 0 for none. */
+    private long moveTime;
+
+    /** Number of moves the time left on a clock is expected to cover. */
+    private static final int MOVES_TO_GO = 30;
+
+    /** Default size of the transposition table in megabytes. */
+    static final int DEFAULT_HASH_SIZE = 16;
+
     /** When set to a non-negative value, indicates that play should terminate
      *  at the earliest possible point, returning exit.
      *  When negative, indicates that the session is not over. */
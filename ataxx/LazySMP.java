@@ -0,0 +1,116 @@
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** A parallel search in the "lazy SMP" style: one main Search and
+ *  several helper Searches of the same position, each on its own thread
+ *  with its own Board, all sharing one TranspositionTable.  Odd helpers
+ *  start one ply deeper than the main search, so the threads fill the
+ *  table with results the others then pick up; the main search's
+ *  answer is the one used, and the helpers are stopped when it
+ *  finishes. */
+class LazySMP implements Searcher {
+
+    /** A search for the side to move on BOARD, as for Search(BOARD,
+     *  MAXDEPTH, TABLE), using THREADS threads in all. */
+    LazySMP(Board board, int maxDepth, TranspositionTable table,
+            int threads) {
+        main = new Search(board, maxDepth, table);
+        for (int i = 1; i < threads; i += 1) {
+            Search helper = new Search(board, maxDepth, table);
+            helper.setFirstDepth(1 + i % 2);
+            helpers.add(helper);
+        }
+    }
+
+    @Override
+    public void setTablebase(Tablebase tablebase) {
+        main.setTablebase(tablebase);
+        for (Search helper : helpers) {
+            helper.setTablebase(tablebase);
+        }
+    }
+
+    @Override
+    public void setEvaluator(Evaluator evaluator) {
+        main.setEvaluator(evaluator);
+        for (Search helper : helpers) {
+            helper.setEvaluator(evaluator);
+        }
+    }
+
+    @Override
+    public void setTimeLimit(long millis) {
+        main.setTimeLimit(millis);
+        for (Search helper : helpers) {
+            helper.setTimeLimit(millis);
+        }
+    }
+
+    /** Return the best move (packed) found by the main search, as for
+     *  Search.findMove, with the helpers searching alongside. */
+    @Override
+    public int findMove() {
+        List<Thread> threads = new ArrayList<>();
+        for (Search helper : helpers) {
+            Thread thread = new Thread(helper::findMove, "ataxx-helper");
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+        int move;
+        try {
+            move = main.findMove();
+        } finally {
+            for (Search helper : helpers) {
+                helper.stop();
+            }
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return move;
+    }
+
+    @Override
+    public void stop() {
+        main.stop();
+        for (Search helper : helpers) {
+            helper.stop();
+        }
+    }
+
+    /** Return the score of the main search's move. */
+    @Override
+    public int bestScore() {
+        return main.bestScore();
+    }
+
+    /** Return the depth completed by the main search. */
+    @Override
+    public int completedDepth() {
+        return main.completedDepth();
+    }
+
+    /** Return the positions visited by all threads in the last
+     *  findMove. */
+    @Override
+    public long nodes() {
+        long nodes = main.nodes();
+        for (Search helper : helpers) {
+            nodes += helper.nodes();
+        }
+        return nodes;
+    }
+
+    /** The search whose result is used. */
+    private final Search main;
+
+    /** Searches run on other threads. */
+    private final List<Search> helpers = new ArrayList<>();
+}
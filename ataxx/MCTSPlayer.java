@@ -0,0 +1,362 @@
+package ataxx;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static ataxx.PieceState.*;
+
+/** A Player that chooses its moves by Monte Carlo Tree Search: UCT
+ *  selection down a tree of positions, one new leaf per playout, and a
+ *  game played out from there by fast, nearly random moves.  Several
+ *  threads may grow the same tree at once, using "virtual loss" to steer
+ *  each other towards different lines.  The tree is kept between moves,
+ *  and reused when the position I am next asked about lies within it. */
+class MCTSPlayer extends Player {
+
+    /** A new MCTSPlayer for GAME that will play MYCOLOR, seeding its
+     *  random playouts from SEED.  It runs PLAYOUTS playouts per move (or
+     *  as many as fit in the time GAME allows for a move, if that is
+     *  less), on THREADS threads. */
+    MCTSPlayer(Game game, PieceState myColor, long seed, int playouts,
+               int threads) {
+        super(game, myColor);
+        random = new SplittableRandom(seed);
+        this.playouts = playouts > 0 ? playouts : DEFAULT_PLAYOUTS;
+        this.threads = Math.max(threads, 1);
+    }
+
+    @Override
+    boolean isAuto() {
+        return true;
+    }
+
+    @Override
+    String getAtaxxMove() {
+        long budget = getAtaxxGame().moveBudget(getMyState());
+        Move move = Move.unpack(findMove(getAtaxxBoard(), budget));
+        getAtaxxGame().reportMove(move, getMyState());
+        return move.toString();
+    }
+
+    /** Make playouts choose their moves uniformly at random iff RANDOM,
+     *  rather than preferring the better of two random moves. */
+    void setRandomPlayouts(boolean random) {
+        randomPlayouts = random;
+    }
+
+    /** Return the most-visited move (packed) from the position on BOARD,
+     *  which is not over, after running my playouts or for MILLIS
+     *  milliseconds (if MILLIS > 0), whichever ends first. */
+    int findMove(Board board, long millis) {
+        long start = System.nanoTime();
+        deadline = millis > 0 ? start + millis * 1000000 : 0;
+        root = reuse(board);
+        reusedVisits = root == null ? 0 : root.visits;
+        if (root == null) {
+            root = new Node(Move.PASS_MOVE, null, board.key());
+        }
+        root.expand(new Board(board), new int[Board.MAX_MOVES]);
+        started.set(0);
+        finished.set(0);
+        if (threads == 1) {
+            work(board, random.split());
+        } else {
+            Thread[] workers = new Thread[threads];
+            for (int i = 0; i < threads; i += 1) {
+                SplittableRandom rnd = random.split();
+                workers[i] = new Thread(() -> work(board, rnd));
+                workers[i].start();
+            }
+            for (Thread worker : workers) {
+                try {
+                    worker.join();
+                } catch (InterruptedException excp) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        lastPlayouts = finished.get();
+        lastNanos = System.nanoTime() - start;
+
+        Node best = null;
+        for (Node child : root.children) {
+            if (best == null || child.visits > best.visits) {
+                best = child;
+            }
+        }
+        return best == null ? Move.PASS_MOVE : best.move;
+    }
+
+    /** Run playouts from a private copy of BOARD with random numbers from
+     *  RANDOM until the budget is spent.  The clock is checked before a
+     *  playout is claimed, so that none is claimed and then not run. */
+    private void work(Board board, SplittableRandom random) {
+        Board scratch = new Board(board);
+        int[] moves = new int[Board.MAX_MOVES];
+        Node[] path = new Node[INITIAL_PATH];
+        while ((deadline == 0 || System.nanoTime() - deadline < 0)
+               && started.getAndIncrement() < playouts) {
+            path = playout(scratch, moves, path, random);
+            finished.incrementAndGet();
+        }
+    }
+
+    /** Do one playout on BOARD, which holds the root position and is
+     *  returned to it, using MOVES as a move buffer and PATH to hold the
+     *  nodes visited (returning PATH, or a larger array if it filled). */
+    private Node[] playout(Board board, int[] moves, Node[] path,
+                           SplittableRandom random) {
+        Node node = root;
+        node.addVirtualLoss();
+        path[0] = node;
+        int length = 1;
+        while (true) {
+            Node[] children = node.children;
+            if (children == null) {
+                if (node.visits <= VIRTUAL_LOSS) {
+                    break;
+                }
+                children = node.expand(board, moves);
+            }
+            if (children.length == 0) {
+                break;
+            }
+            node = select(node, children);
+            node.addVirtualLoss();
+            board.makeMove(node.move);
+            if (length == path.length) {
+                path = Arrays.copyOf(path, 2 * length);
+            }
+            path[length++] = node;
+        }
+        PieceState winner = simulate(board, moves, random);
+        for (int i = 0; i < length; i += 1) {
+            path[i].update(winner);
+        }
+        while (board.undoDepth() > 0) {
+            board.undoMove();
+        }
+        return path;
+    }
+
+    /** Return the child among CHILDREN of PARENT with the highest UCT
+     *  value, or the first one not yet visited. */
+    private static Node select(Node parent, Node[] children) {
+        double logVisits = Math.log(Math.max(parent.visits, 1));
+        Node best = children[0];
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (Node child : children) {
+            int visits = child.visits;
+            if (visits == 0) {
+                return child;
+            }
+            double value = child.wins / visits
+                + EXPLORATION * Math.sqrt(logVisits / visits);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /** Play the game on BOARD to its end (or for MAX_PLAYOUT_PLIES moves,
+     *  then counting pieces), using MOVES as a move buffer and RANDOM to
+     *  choose moves, and return the winner (EMPTY for a draw).  The moves
+     *  are left on BOARD's undo stack. */
+    private PieceState simulate(Board board, int[] moves,
+                                SplittableRandom random) {
+        for (int ply = 0; ply < MAX_PLAYOUT_PLIES; ply += 1) {
+            PieceState winner = board.getWinner();
+            if (winner != null) {
+                return winner;
+            }
+            int n = board.generateMoves(moves, true);
+            if (n == 0) {
+                board.makeMove(Move.PASS_MOVE);
+                continue;
+            }
+            int move = moves[random.nextInt(n)];
+            if (!randomPlayouts) {
+                int other = moves[random.nextInt(n)];
+                if (gain(board, other) > gain(board, move)) {
+                    move = other;
+                }
+            }
+            board.makeMove(move);
+        }
+        int red = board.getColorNums(RED), blue = board.getColorNums(BLUE);
+        return red > blue ? RED : blue > red ? BLUE : EMPTY;
+    }
+
+    /** Return the number of pieces the side to move on BOARD gains by
+     *  the packed MOVE. */
+    private static int gain(Board board, int move) {
+        int captured =
+            Long.bitCount(board.captures(Move.toBit(move), board.nextMove()));
+        return Move.isClone(move) ? captured + 1 : captured;
+    }
+
+    /** Return the node of my previous tree, at most two plies below its
+     *  root, for the position on BOARD, or null if there is none. */
+    private Node reuse(Board board) {
+        long key = board.key();
+        if (root == null) {
+            return null;
+        } else if (root.key == key) {
+            return root;
+        }
+        Node[] children = root.children;
+        for (int i = 0; children != null && i < children.length; i += 1) {
+            if (children[i].key == key) {
+                return children[i];
+            }
+            Node[] grandchildren = children[i].children;
+            for (int j = 0; grandchildren != null && j < grandchildren.length;
+                 j += 1) {
+                if (grandchildren[j].key == key) {
+                    return grandchildren[j];
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Return the number of playouts run by the last findMove. */
+    int lastPlayouts() {
+        return lastPlayouts;
+    }
+
+    /** Return the playouts per second run by the last findMove. */
+    double playoutsPerSecond() {
+        return lastNanos == 0 ? 0 : lastPlayouts * 1e9 / lastNanos;
+    }
+
+    /** Return the number of visits to the root that the last findMove
+     *  inherited from the tree of the move before. */
+    int reusedVisits() {
+        return reusedVisits;
+    }
+
+    /** A position in the search tree.  Its statistics are updated under
+     *  its lock, but may be read without it. */
+    private static final class Node {
+
+        /** A node reached by the packed MOVE, made by MOVER (null for the
+         *  root), whose position has Board.key() KEY. */
+        Node(int move, PieceState mover, long key) {
+            this.move = move;
+            this.mover = mover;
+            this.key = key;
+        }
+
+        /** Create my children from BOARD, which holds my position, using
+         *  MOVES as a move buffer, unless another thread has already done
+         *  so, and return them.  A finished game has no children, and a
+         *  side with no moves has a single pass. */
+        synchronized Node[] expand(Board board, int[] moves) {
+            if (children != null) {
+                return children;
+            }
+            PieceState me = board.nextMove();
+            int n = 0;
+            if (board.getWinner() == null) {
+                n = board.generateMoves(moves, true);
+                if (n == 0) {
+                    moves[n++] = Move.PASS_MOVE;
+                }
+            }
+            Node[] result = new Node[n];
+            for (int i = 0; i < n; i += 1) {
+                board.makeMove(moves[i]);
+                result[i] = new Node(moves[i], me, board.key());
+                board.undoMove();
+            }
+            children = result;
+            return result;
+        }
+
+        /** Count a playout passing through me as a loss until it is
+         *  finished, so that other threads look elsewhere meanwhile. */
+        synchronized void addVirtualLoss() {
+            visits += VIRTUAL_LOSS;
+        }
+
+        /** Record the result of a playout through me that WINNER won
+         *  (EMPTY for a draw), replacing its virtual loss. */
+        synchronized void update(PieceState winner) {
+            visits += 1 - VIRTUAL_LOSS;
+            if (winner == mover) {
+                wins += 1;
+            } else if (winner == EMPTY) {
+                wins += 0.5;
+            }
+        }
+
+        /** The move that reaches me. */
+        final int move;
+
+        /** The side that made move. */
+        final PieceState mover;
+
+        /** Board.key() of my position. */
+        final long key;
+
+        /** My children, or null if not yet expanded. */
+        volatile Node[] children;
+
+        /** Playouts through me, including those still in progress. */
+        volatile int visits;
+
+        /** Playouts through me won by mover, with draws counting half. */
+        volatile double wins;
+    }
+
+    /** Playouts per move when none are given. */
+    static final int DEFAULT_PLAYOUTS = 20000;
+
+    /** UCT exploration constant. */
+    private static final double EXPLORATION = 1.4;
+
+    /** Losses charged to a node for each playout in progress through
+     *  it. */
+    private static final int VIRTUAL_LOSS = 1;
+
+    /** Moves after which a playout stops and counts pieces. */
+    private static final int MAX_PLAYOUT_PLIES = 300;
+
+    /** Initial size of the path buffers. */
+    private static final int INITIAL_PATH = 64;
+
+    /** Source of the random numbers of each findMove. */
+    private final SplittableRandom random;
+
+    /** Playouts per move. */
+    private final int playouts;
+
+    /** Number of threads growing the tree. */
+    private final int threads;
+
+    /** True iff playouts choose moves uniformly at random. */
+    private boolean randomPlayouts;
+
+    /** Root of the current tree, or null if none. */
+    private Node root;
+
+    /** Number of playouts claimed and finished by the current
+     *  findMove.  A thread that finds the budget spent has claimed one
+     *  more than it runs. */
+    private final AtomicInteger started = new AtomicInteger(),
+        finished = new AtomicInteger();
+
+    /** System.nanoTime() at which the current findMove must stop, or 0
+     *  for no limit. */
+    private volatile long deadline;
+
+    /** Statistics of the last findMove. */
+    private int lastPlayouts, reusedVisits;
+
+    /** Duration of the last findMove in nanoseconds. */
+    private long lastNanos;
+}
@@ -0,0 +1,66 @@
+package ataxx;
+
+import org.junit.Test;
+
+import static ataxx.PieceState.*;
+import static org.junit.Assert.*;
+
+public class MCTSPlayerTest {
+
+    /** Return an MCTSPlayer for COLOR running PLAYOUTS playouts on
+     *  THREADS threads. */
+    private static MCTSPlayer player(PieceState color, int playouts,
+                                     int threads) {
+        Game game = new Game(null, (b) -> { }, null);
+        return new MCTSPlayer(game, color, 1234, playouts, threads);
+    }
+
+    @Test
+    public void testTakesWinningCapture() {
+        Board b = new Board();
+        for (char c = 'a'; c <= 'g'; c++) {
+            for (char r = '1'; r <= '7'; r++) {
+                b.setContent(c, r, EMPTY);
+            }
+        }
+        b.setContent('a', '1', RED);
+        b.setContent('c', '2', BLUE);
+        Move move = Move.unpack(player(RED, 2000, 1).findMove(b, 0));
+        b.makeMove(move);
+        assertEquals(RED, b.getWinner());
+    }
+
+    @Test
+    public void testPlayoutBudget() {
+        MCTSPlayer player = player(RED, 500, 3);
+        Board b = new Board();
+        int move = player.findMove(b, 0);
+        assertTrue(b.moveLegal(Move.unpack(move)));
+        assertEquals(500, player.lastPlayouts());
+        assertTrue(player.playoutsPerSecond() > 0);
+    }
+
+    @Test
+    public void testCountsPlayoutsUnderTimeLimit() {
+        MCTSPlayer player = player(RED, Integer.MAX_VALUE, 2);
+        Board b = new Board();
+        player.findMove(b, 50);
+        int playouts = player.lastPlayouts();
+        assertTrue(playouts > 0);
+        player.findMove(b, 50);
+        assertEquals(playouts, player.reusedVisits());
+    }
+
+    @Test
+    public void testReusesTree() {
+        MCTSPlayer player = player(RED, 2000, 1);
+        Board b = new Board();
+        b.makeMove(player.findMove(b, 0));
+        assertEquals(0, player.reusedVisits());
+        int[] moves = new int[Board.MAX_MOVES];
+        b.generateMoves(moves, true);
+        b.makeMove(moves[0]);
+        player.findMove(b, 0);
+        assertTrue(player.reusedVisits() > 0);
+    }
+}
@@ -12,12 +12,35 @@ public class Main {
 
     /** Run Ataxx getAtaxxGame.  Options (in ARGS0):
      *       --display: Use GUI.
+     *       --depth=N: AI players search N plies ahead.
+     *       --hash=MB: AI players share a MB-megabyte transposition table.
+     *       --threads=N: AI players search with N threads.
+     *       --forkjoin: With --threads, split the search tree among
+     *           the threads rather than having them search it together.
+     *       --playouts=N: Players set by "mcts" run N playouts per move.
+     *       --tablebase=FILE: AI players use the solved positions in
+     *           FILE, written by the "tablebase" command.
+     *       --book=FILE: AI players play the moves in the opening
+     *           book FILE, written by the "book" command.
+     *       --weights=FILE: AI players evaluate positions and moves
+     *           with the weights in FILE, written by the "tune"
+     *           command.
+     *       --seed=N: Seed the AI players' random numbers with N, so
+     *           that runs with the same seed play the same games.
+     *       --ponder: AI players think while waiting for a human
+     *           opponent's move.
      *  Trailing arguments are input files; the standard input is the
      *  default.
      */
     public static void main(String[] args0) {
         CommandArgs args =
-            new CommandArgs("--display{0,1}", args0);
+            new CommandArgs("--display{0,1} --depth=(\\d+){0,1} "
+                            + "--hash=(\\d+){0,1} --threads=(\\d+){0,1} "
+                            + "--forkjoin{0,1} --playouts=(\\d+){0,1} "
+                            + "--ponder{0,1} --tablebase=(.+){0,1} "
+                            + "--book=(.+){0,1} --seed=(\\d+){0,1} "
+                            + "--weights=(.+){0,1}",
+                            args0);
 
         Game game;
         if (args.contains("--display")) {
@@ -46,6 +69,48 @@ public class Main {
             game = new Game(new TextSource(inReaders),
                             (b) -> { }, new TextReporter());
         }
+        try {
+            game.setAIDepth(args.getInt("--depth", 10, AIPlayer.DEFAULT_DEPTH));
+            game.setHashSize(args.getInt("--hash", 10,
+                                         Game.DEFAULT_HASH_SIZE));
+            game.setSearchThreads(args.getInt("--threads", 10, 1));
+            game.setForkJoin(args.contains("--forkjoin"));
+            game.setPlayouts(args.getInt("--playouts", 10, 0));
+            game.setPondering(args.contains("--ponder"));
+            if (args.contains("--seed")) {
+                game.setSeed(Long.parseLong(args.getLast("--seed")));
+            }
+            if (args.contains("--tablebase")) {
+                try {
+                    game.setTablebase(args.getLast("--tablebase"));
+                } catch (GameException excp) {
+                    System.err.printf("Could not use tablebase: %s",
+                                      excp.getMessage());
+                    System.exit(1);
+                }
+            }
+            if (args.contains("--weights")) {
+                try {
+                    game.setEvaluator(args.getLast("--weights"));
+                } catch (GameException excp) {
+                    System.err.printf("Could not use weights: %s",
+                                      excp.getMessage());
+                    System.exit(1);
+                }
+            }
+            if (args.contains("--book")) {
+                try {
+                    game.setBook(args.getLast("--book"));
+                } catch (GameException excp) {
+                    System.err.printf("Could not use opening book: %s",
+                                      excp.getMessage());
+                    System.exit(1);
+                }
+            }
+        } catch (NumberFormatException excp) {
+            System.err.printf("Bad number in options");
+            System.exit(1);
+        }
         System.exit(game.play());
     }
 }
@@ -24,16 +24,22 @@ class Move {
         this.row1 = (char) (row1 + '1' - 2);
         fromIndex = row0 * DEEPER_ONESIDE + col0;
         toIndex = row1 * DEEPER_ONESIDE + col1;
-        String location0 = String.valueOf(this.col0) + this.row0;
-        String location1 = String.valueOf(this.col1) + this.row1;
-        isClone = isClone(location0, location1);
-        isJump = isJump(location0, location1);
+        if (onBoard(col1) && onBoard(row1)) {
+            packed = pack((row0 - 2) * ONESIDE + col0 - 2,
+                          (row1 - 2) * ONESIDE + col1 - 2);
+        } else {
+            packed = -1;
+        }
+        int distance = Math.max(Math.abs(col1 - col0), Math.abs(row1 - row0));
+        isClone = distance == 1;
+        isJump = distance == 2;
     }
 
     /** A pass. */
     private Move() {
         col0 = col1 = row0 = row1 = 0;
         fromIndex = toIndex = -1;
+        packed = PASS_MOVE;
         isJump = isClone = false;
     }
 
@@ -43,9 +49,14 @@ class Move {
      *  in some direction.  The moves are on the extended board (i.e., they
      *  may go into the border layers). */
     static Move move(char col0, char row0, char col1, char row1) {
-        return
-            OVERALL_MOVES[col0 - 'a' + 2][row0 - '1' + 2]
-            [col1 - 'a' + 2][row1 - '1' + 2];
+        int c0 = col0 - 'a', r0 = row0 - '1';
+        int dc = col1 - col0, dr = row1 - row0;
+        if (c0 < 0 || c0 >= ONESIDE || r0 < 0 || r0 >= ONESIDE
+            || Math.abs(dc) > 2 || Math.abs(dr) > 2 || (dc == 0 && dr == 0)) {
+            return null;
+        }
+        return OVERALL_MOVES[(r0 * ONESIDE + c0) * DIRECTIONS
+                             + direction(dc, dr)];
     }
 
     /** Return the Move denoted by STR, or null if STR is not a syntactically
@@ -128,6 +139,65 @@ class Move {
         return PASS;
     }
 
+    /* Inside searches, moves are passed around as packed ints rather
+     * than Moves: bits 0-5 hold the bit number (as for Board.bit) of
+     * the from square and bits 6-11 that of the to square, so that a
+     * packed move also fits in a short.  A pass is PASS_MOVE. */
+
+    /** Return the packed move from bit number FROMBIT to TOBIT. */
+    static int pack(int fromBit, int toBit) {
+        return fromBit | (toBit << 6);
+    }
+
+    /** Return the bit number of the from square of packed MOVE. */
+    static int fromBit(int move) {
+        return move & 0x3f;
+    }
+
+    /** Return the bit number of the to square of packed MOVE. */
+    static int toBit(int move) {
+        return (move >> 6) & 0x3f;
+    }
+
+    /** Return the Move denoted by packed MOVE. */
+    static Move unpack(int move) {
+        if (move == PASS_MOVE) {
+            return PASS;
+        }
+        int from = fromBit(move), to = toBit(move);
+        return OVERALL_MOVES[from * DIRECTIONS
+                             + direction(to % ONESIDE - from % ONESIDE,
+                                         to / ONESIDE - from / ONESIDE)];
+    }
+
+    /** Return true iff packed MOVE is a clone. */
+    static boolean isClone(int move) {
+        return KINDS[move & PASS_MOVE] == CLONE;
+    }
+
+    /** Return true iff packed MOVE is a jump. */
+    static boolean isJump(int move) {
+        return KINDS[move & PASS_MOVE] == JUMP;
+    }
+
+    /** Return the index, in 0 .. DIRECTIONS - 1, of the step of DC
+     *  columns and DR rows, which must not both be 0. */
+    private static int direction(int dc, int dr) {
+        int k = (dr + 2) * 5 + dc + 2;
+        return k < DIRECTIONS / 2 ? k : k - 1;
+    }
+
+    /** Return my packed form, or -1 if I go off the board. */
+    int packed() {
+        return packed;
+    }
+
+    /** Return true iff C, a column or row on the extended board,
+     *  lies on the real board. */
+    private static boolean onBoard(int c) {
+        return c >= 2 && c < ONESIDE + 2;
+    }
+
     /** Return true iff I am a pass. */
     boolean isPass() {
         return this == PASS;
@@ -200,31 +270,53 @@ class Move {
     /** Size of side of a board plus 2-deep boundary. */
     static final int DEEPER_ONESIDE = ONESIDE + 4;
 
+    /** The packed pass. */
+    static final int PASS_MOVE = 0xfff;
+
     /** The pass. */
     static final Move PASS = new Move();
 
     /** Linearized indices. */
     private final int fromIndex, toIndex;
 
+    /** My packed form. */
+    private final int packed;
+
     /** Move characteristics, indicating whether move is clone or jump. */
-    private boolean isClone, isJump;
+    private final boolean isClone, isJump;
 
     /** From and two squares, or 0s if a pass. */
-    private char col0, row0, col1, row1;
+    private final char col0, row0, col1, row1;
+
+    /** Number of squares within two rows and columns of a square. */
+    static final int DIRECTIONS = 24;
+
+    /** The set of all Moves other than pass, indexed by from square
+     *  (as a bit number) * DIRECTIONS + direction(dc, dr).  Moves into
+     *  the border are included, as they may be named by users. */
+    private static final Move[] OVERALL_MOVES =
+        new Move[ONESIDE * ONESIDE * DIRECTIONS];
+
+    /** Values in KINDS. */
+    private static final byte CLONE = 1, JUMP = 2;
 
-    /** The set of all Moves other than pass, indexed by from and to column and
-     *  row positions. */
-    private static final Move[][][][] OVERALL_MOVES =
-        new Move[DEEPER_ONESIDE][DEEPER_ONESIDE][DEEPER_ONESIDE][DEEPER_ONESIDE];
+    /** The kind (0, CLONE or JUMP) of each packed move. */
+    private static final byte[] KINDS = new byte[PASS_MOVE + 1];
 
     static {
         for (int c = 2; c < ONESIDE + 2; c += 1) {
             for (int r = 2; r < ONESIDE + 2; r += 1) {
+                int from = (r - 2) * ONESIDE + c - 2;
                 for (int dc = -2; dc <= 2; dc += 1) {
                     for (int dr = -2; dr <= 2; dr += 1) {
                         if (dc != 0 || dr != 0) {
-                            OVERALL_MOVES[c][r][c + dc][r + dr] =
-                                new Move(c, r, c + dc, r + dr);
+                            Move mv = new Move(c, r, c + dc, r + dr);
+                            OVERALL_MOVES[from * DIRECTIONS
+                                          + direction(dc, dr)] = mv;
+                            if (mv.packed() >= 0) {
+                                KINDS[mv.packed()] =
+                                    mv.isClone() ? CLONE : JUMP;
+                            }
                         }
                     }
                 }
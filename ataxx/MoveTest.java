@@ -51,4 +51,42 @@ public class MoveTest {
         assertEquals(false, Move.isJump("a3", "b4"));
         assertEquals(false, Move.isJump("d6", "e7"));
     }
+
+    @Test
+    public void testPackedRoundTrip() {
+        for (char c = 'a'; c <= 'g'; c++) {
+            for (char r = '1'; r <= '7'; r++) {
+                for (int dc = -2; dc <= 2; dc++) {
+                    for (int dr = -2; dr <= 2; dr++) {
+                        char c1 = (char) (c + dc), r1 = (char) (r + dr);
+                        Move m = Move.move(c, r, c1, r1);
+                        if (dc == 0 && dr == 0) {
+                            assertNull(m);
+                        } else if (m.packed() >= 0) {
+                            assertSame(m, Move.unpack(m.packed()));
+                            assertEquals(m.isClone(), Move.isClone(m.packed()));
+                            assertEquals(m.isJump(), Move.isJump(m.packed()));
+                            assertEquals(Board.bit(c1, r1),
+                                    Move.toBit(m.packed()));
+                        } else {
+                            assertTrue(c1 < 'a' || c1 > 'g'
+                                    || r1 < '1' || r1 > '7');
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMoveFactory() {
+        assertSame(Move.move("c3-d4"), Move.move('c', '3', 'd', '4'));
+        assertTrue(Move.move("c3-d4").isClone());
+        assertTrue(Move.move("c3-e5").isJump());
+        assertNull(Move.move('c', '3', 'f', '3'));
+        assertNull(Move.move('h', '3', 'g', '3'));
+        assertSame(Move.pass(), Move.unpack(Move.PASS_MOVE));
+        assertFalse(Move.isClone(Move.PASS_MOVE));
+        assertFalse(Move.isJump(Move.PASS_MOVE));
+    }
 }
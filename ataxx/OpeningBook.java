@@ -0,0 +1,174 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static ataxx.GameException.error;
+
+/** A read-only book of opening moves, kept in a file and mapped into
+ *  memory.  Positions are looked up by the Board.key() of their canonical
+ *  form under the board's symmetries (see Symmetry), so that one entry
+ *  serves a position and all its mirror images, and moves are stored as
+ *  they would be played in the canonical form.
+ *
+ *  The file is a HEADER_BYTES-byte header (MAGIC, VERSION and the number
+ *  of records) followed by the records, RECORD_BYTES each, sorted by key
+ *  and then by move: the canonical key, a move from that position
+ *  (packed, as a short), the number of games in which it was played (an
+ *  unsigned short), and the points its side scored in them (an int, two
+ *  for a win and one for a draw).  A position is found by binary search
+ *  on the keys. */
+class OpeningBook {
+
+    /** An OpeningBook of the records in FILE. */
+    OpeningBook(Path file) {
+        try (FileChannel channel = FileChannel.open(file,
+                                                    StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                 channel.size());
+        } catch (IOException excp) {
+            throw error("cannot read opening book %s: %s", file,
+                        excp.getMessage());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC
+            || buffer.getInt(4) != VERSION) {
+            throw error("%s is not an opening book", file);
+        }
+        records = buffer.getInt(8);
+        if (records < 0 || buffer.capacity()
+            != HEADER_BYTES + (long) records * RECORD_BYTES) {
+            throw error("opening book %s is damaged", file);
+        }
+    }
+
+    /** Return the best-scoring legal move (packed) recorded for the
+     *  position on BOARD or any of its mirror images, played as it
+     *  would be on BOARD, or NONE if there is none.  A move's score is
+     *  its points per game after adding PRIOR_GAMES drawn games, so that
+     *  a move with few games scores near a draw rather than ahead of
+     *  moves that have done well in many. */
+    int probe(Board board) {
+        int t = Symmetry.canonical(board);
+        long key = Symmetry.key(board, t);
+        int back = Symmetry.inverse(t);
+        int best = NONE;
+        long bestGames = 0, bestPoints = 0;
+        for (int i = first(key); i < records && key(i) == key; i += 1) {
+            int offset = HEADER_BYTES + i * RECORD_BYTES;
+            int move = Symmetry.move(buffer.getShort(offset + 8)
+                                     & Move.PASS_MOVE, back);
+            long games = buffer.getChar(offset + 10);
+            long points = buffer.getInt(offset + 12);
+            if (legal(board, move)
+                && (best == NONE
+                    || (points + PRIOR_GAMES) * (bestGames + PRIOR_GAMES)
+                    > (bestPoints + PRIOR_GAMES) * (games + PRIOR_GAMES))) {
+                best = move;
+                bestGames = games;
+                bestPoints = points;
+            }
+        }
+        return best;
+    }
+
+    /** Return the number of records in the book. */
+    int size() {
+        return records;
+    }
+
+    /** Return the index of the first record with key KEY or, if there is
+     *  none, of the first with a greater key. */
+    private int first(long key) {
+        int lo = 0, hi = records;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (key(mid) < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** Return the key of record I. */
+    private long key(int i) {
+        return buffer.getLong(HEADER_BYTES + i * RECORD_BYTES);
+    }
+
+    /** Return true iff the packed MOVE is a legal move other than a pass
+     *  on BOARD, as a check against colliding keys. */
+    private static boolean legal(Board board, int move) {
+        if (move == Move.PASS_MOVE) {
+            return false;
+        }
+        int from = Move.fromBit(move), to = Move.toBit(move);
+        return (board.pieces(board.nextMove()) >>> from & 1) != 0
+            && (board.emptySquares() >>> to & 1) != 0
+            && ((Board.CLONE_REACH[from] | Board.JUMP_REACH[from])
+                >>> to & 1) != 0;
+    }
+
+    /** Write an opening book to FILE holding, for each i < N, the move
+     *  MOVES[i] (packed) from the canonical position with key KEYS[i],
+     *  played in GAMES[i] games in which its side scored POINTS[i]
+     *  points. */
+    static void write(Path file, long[] keys, int[] moves, int[] games,
+                      int[] points, int n) {
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i += 1) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (i, j) -> keys[i] != keys[j]
+                    ? Long.compare(keys[i], keys[j])
+                    : Integer.compare(moves[i], moves[j]));
+        ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + n * RECORD_BYTES);
+        out.order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, n);
+        for (int k = 0; k < n; k += 1) {
+            int i = order[k];
+            int offset = HEADER_BYTES + k * RECORD_BYTES;
+            out.putLong(offset, keys[i]);
+            out.putShort(offset + 8, (short) moves[i]);
+            out.putChar(offset + 10,
+                        (char) Math.min(games[i], Character.MAX_VALUE));
+            out.putInt(offset + 12, points[i]);
+        }
+        try (FileChannel channel = FileChannel.open(file,
+                 StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                 StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+        } catch (IOException excp) {
+            throw error("cannot write opening book %s: %s", file,
+                        excp.getMessage());
+        }
+    }
+
+    /** Number of drawn games (one point each) added to each move's
+     *  record when ranking moves. */
+    static final int PRIOR_GAMES = 10;
+
+    /** Returned by probe for a position not in the book. */
+    static final int NONE = -1;
+
+    /** File identification ("ABOK") and format version. */
+    private static final int MAGIC = 0x4b4f4241, VERSION = 1;
+
+    /** Sizes of the header and of each record in bytes. */
+    private static final int HEADER_BYTES = 12, RECORD_BYTES = 16;
+
+    /** The mapped file. */
+    private final MappedByteBuffer buffer;
+
+    /** Number of records. */
+    private final int records;
+}
@@ -0,0 +1,152 @@
+package ataxx;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static ataxx.GameException.error;
+import static ataxx.PieceState.*;
+
+/** Builds OpeningBook files from self-play.  Each game starts with a few
+ *  random moves, so that the games differ, and is then played out by
+ *  Searches of a fixed depth.  The moves the searches chose in the first
+ *  plies of each game are recorded under the canonical forms of their
+ *  positions, with the result of the game for the side that made
+ *  them.  Each move is recorded as its Symmetry.representative on the
+ *  canonical board, so that moves leading to the same position (clones
+ *  from different squares, or mirror images in a symmetric position)
+ *  share one record. */
+class OpeningBookBuilder {
+
+    /** A builder recording the first PLIES plies of games whose moves are
+     *  found by searches DEPTH plies deep, playing on THREADS threads. */
+    OpeningBookBuilder(int plies, int depth, int threads) {
+        this.plies = plies;
+        this.depth = Math.max(depth, 1);
+        this.threads = Math.max(threads, 1);
+    }
+
+    /** Play GAMES games from START, with random moves chosen with random
+     *  numbers from SEED, and record their opening moves. */
+    void play(Board start, int games, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int g = 0; g < games; g += 1) {
+                SplittableRandom rnd = random.split();
+                results.add(pool.submit(() -> playGame(start, rnd)));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException | ExecutionException excp) {
+            throw error("self-play failed: %s", excp);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Play one game from START, choosing the random moves with RANDOM,
+     *  and record its opening moves. */
+    private void playGame(Board start, SplittableRandom random) {
+        Board board = new Board(start);
+        TranspositionTable table = new TranspositionTable(HASH_SIZE);
+        int[] moves = new int[Board.MAX_MOVES];
+        List<long[]> played = new ArrayList<>();
+        for (int ply = 0; board.getWinner() == null; ply += 1) {
+            int move;
+            if (ply < RANDOM_PLIES) {
+                int n = board.generateMoves(moves, true);
+                move = n == 0 ? Move.PASS_MOVE : moves[random.nextInt(n)];
+            } else {
+                move = new Search(board, depth, table).findMove();
+                if (ply < plies && move != Move.PASS_MOVE) {
+                    played.add(record(board, move));
+                }
+            }
+            board.makeMove(move);
+        }
+        add(played, board.getWinner());
+    }
+
+    /** Return the record of the packed MOVE, other than a pass, from the
+     *  position on BOARD: the canonical key of the position, the move's
+     *  representative on the canonical board, and the side to move (as
+     *  an ordinal). */
+    static long[] record(Board board, int move) {
+        int t = Symmetry.canonical(board);
+        return new long[] {
+            Symmetry.key(board, t),
+            Symmetry.representative(Symmetry.image(board, t),
+                                    Symmetry.move(move, t)),
+            board.nextMove().ordinal()
+        };
+    }
+
+    /** Add the records PLAYED, from a game that WINNER won (EMPTY for a
+     *  draw), to the book. */
+    synchronized void add(List<long[]> played, PieceState winner) {
+        for (long[] record : played) {
+            int[] stats =
+                book.computeIfAbsent(record[0], k -> new HashMap<>())
+                .computeIfAbsent((int) record[1], m -> new int[2]);
+            stats[0] += 1;
+            if (winner == EMPTY) {
+                stats[1] += 1;
+            } else if (winner.ordinal() == record[2]) {
+                stats[1] += 2;
+            }
+        }
+    }
+
+    /** Write the moves recorded so far to FILE as an OpeningBook, and
+     *  return the number of records written. */
+    synchronized int write(Path file) {
+        int n = 0;
+        for (HashMap<Integer, int[]> moves : book.values()) {
+            n += moves.size();
+        }
+        long[] keys = new long[n];
+        int[] moves = new int[n], games = new int[n], points = new int[n];
+        int k = 0;
+        for (long key : book.keySet()) {
+            for (HashMap.Entry<Integer, int[]> entry
+                     : book.get(key).entrySet()) {
+                keys[k] = key;
+                moves[k] = entry.getKey();
+                games[k] = entry.getValue()[0];
+                points[k] = entry.getValue()[1];
+                k += 1;
+            }
+        }
+        OpeningBook.write(file, keys, moves, games, points, n);
+        return n;
+    }
+
+    /** Number of random moves at the start of each game. */
+    static final int RANDOM_PLIES = 2;
+
+    /** Size in megabytes of the table of each game's searches. */
+    private static final int HASH_SIZE = 4;
+
+    /** Number of plies recorded from each game. */
+    private final int plies;
+
+    /** Search depth of the moves played. */
+    private final int depth;
+
+    /** Number of threads playing games. */
+    private final int threads;
+
+    /** For each canonical key, the moves played from that position, each
+     *  with its number of games and points. */
+    private final HashMap<Long, HashMap<Integer, int[]>> book =
+        new HashMap<>();
+}
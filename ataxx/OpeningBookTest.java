@@ -0,0 +1,122 @@
+package ataxx;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OpeningBookTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** Return the bit number of square CR. */
+    private static int bit(String cr) {
+        return (cr.charAt(1) - '1') * 7 + (cr.charAt(0) - 'a');
+    }
+
+    @Test
+    public void testProbeMirrors() throws IOException {
+        Path file = folder.newFile("one.book").toPath();
+        Board b = SymmetryTest.lopsided();
+        int move = Move.pack(bit("d6"), bit("e5"));
+        int t = Symmetry.canonical(b);
+        OpeningBook.write(file, new long[] { Symmetry.key(b, t) },
+                          new int[] { Symmetry.move(move, t) },
+                          new int[] { 3 }, new int[] { 4 }, 1);
+        OpeningBook book = new OpeningBook(file);
+        assertEquals(1, book.size());
+        for (int u = 0; u < Symmetry.COUNT; u++) {
+            assertEquals(Symmetry.move(move, u),
+                         book.probe(SymmetryTest.mirror(b, u)));
+        }
+        assertEquals(OpeningBook.NONE, book.probe(new Board()));
+    }
+
+    @Test
+    public void testBestScoringMove() throws IOException {
+        Path file = folder.newFile("three.book").toPath();
+        Board b = new Board();
+        long key = Symmetry.canonicalKey(b);
+        int t = Symmetry.canonical(b);
+        int clone = Move.pack(bit("a7"), bit("b6")),
+            jump = Move.pack(bit("a7"), bit("c5")),
+            illegal = Move.pack(bit("d4"), bit("d5"));
+        OpeningBook.write(file, new long[] { key, 17L, key, key },
+                new int[] { Symmetry.move(clone, t), clone,
+                            Symmetry.move(jump, t),
+                            Symmetry.move(illegal, t) },
+                new int[] { 10, 1, 10, 10 }, new int[] { 15, 2, 5, 20 }, 4);
+        assertEquals(clone, new OpeningBook(file).probe(b));
+    }
+
+    @Test
+    public void testOneLuckyGameDoesNotOutrankManyGood()
+        throws IOException {
+        Path file = folder.newFile("lucky.book").toPath();
+        Board b = new Board();
+        long key = Symmetry.canonicalKey(b);
+        int t = Symmetry.canonical(b);
+        int clone = Move.pack(bit("a7"), bit("b6")),
+            jump = Move.pack(bit("a7"), bit("c5"));
+        OpeningBook.write(file, new long[] { key, key },
+                new int[] { Symmetry.move(clone, t), Symmetry.move(jump, t) },
+                new int[] { 100, 1 }, new int[] { 140, 2 }, 2);
+        assertEquals(clone, new OpeningBook(file).probe(b));
+    }
+
+    @Test
+    public void testMirroredClonesShareRecord() throws IOException {
+        Board b = new Board();
+        b.makeMove(Move.pack(bit("a7"), bit("b6")));
+        b.makeMove(Move.pack(bit("a1"), bit("b2")));
+        b.makeMove(Move.pack(bit("g1"), bit("f1")));
+        b.makeMove(Move.pack(bit("g7"), bit("g6")));
+        assertEquals(1, Symmetry.symmetries(b));
+        OpeningBookBuilder builder = new OpeningBookBuilder(4, 1, 1);
+        List<long[]> played = new ArrayList<>();
+        for (int t = 0; t < Symmetry.COUNT; t++) {
+            Board image = SymmetryTest.mirror(b, t);
+            for (String from : new String[] { "f1", "g1" }) {
+                played.add(OpeningBookBuilder.record(image,
+                    Symmetry.move(Move.pack(bit(from), bit("f2")), t)));
+            }
+        }
+        builder.add(played, PieceState.RED);
+        Path file = folder.getRoot().toPath().resolve("clones.book");
+        assertEquals(1, builder.write(file));
+        int move = new OpeningBook(file).probe(b);
+        assertTrue(Move.isClone(move));
+        assertEquals(bit("f2"), Move.toBit(move));
+    }
+
+    @Test
+    public void testBuildFromSelfPlay() throws IOException {
+        Path file1 = folder.getRoot().toPath().resolve("a.book"),
+            file2 = folder.getRoot().toPath().resolve("b.book");
+        int plies = OpeningBookBuilder.RANDOM_PLIES + 3;
+        for (Path file : new Path[] { file1, file2 }) {
+            OpeningBookBuilder builder = new OpeningBookBuilder(plies, 1, 2);
+            builder.play(new Board(), 3, 42);
+            int records = builder.write(file);
+            assertTrue(records > 0 && records <= 9);
+            assertEquals(records, new OpeningBook(file).size());
+        }
+        assertArrayEquals(Files.readAllBytes(file1),
+                          Files.readAllBytes(file2));
+    }
+
+    @Test(expected = GameException.class)
+    public void testRejectsOtherFiles() throws IOException {
+        Path file = folder.newFile("junk.book").toPath();
+        Files.write(file, new byte[64]);
+        new OpeningBook(file);
+    }
+}
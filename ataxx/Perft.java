@@ -0,0 +1,118 @@
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static ataxx.GameException.error;
+
+/** Counts the leaf nodes of the game tree below a position ("perft"),
+ *  for checking and timing Board's move generation.
+ *
+ *  Clones are counted once per destination square, as
+ *  Board.generateMoves(moves, true) produces them; a side that cannot
+ *  move passes, and a finished game has no moves. */
+class Perft {
+
+    /** A Perft that searches a private copy of BOARD. */
+    Perft(Board board) {
+        this.board = new Board(board);
+    }
+
+    /** Return the number of leaf nodes DEPTH plies below my position. */
+    long count(int depth) {
+        moves = new int[depth + 1][Board.MAX_MOVES];
+        return count0(depth);
+    }
+
+    /** Return the number of leaf nodes DEPTH plies below the current
+     *  position of my board, using moves[DEPTH] for its moves. */
+    private long count0(int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        if (board.getWinner() != null) {
+            return 0;
+        }
+        int[] buffer = moves[depth];
+        int n = board.generateMoves(buffer, true);
+        if (n == 0) {
+            buffer[n++] = Move.PASS_MOVE;
+        }
+        if (depth == 1) {
+            return n;
+        }
+        long total = 0;
+        for (int i = 0; i < n; i += 1) {
+            board.makeMove(buffer[i]);
+            total += count0(depth - 1);
+            board.undoMove();
+        }
+        return total;
+    }
+
+    /** Return the number of leaf nodes DEPTH plies below BOARD. */
+    static long perft(Board board, int depth) {
+        return new Perft(board).count(depth);
+    }
+
+    /** Return the number of leaf nodes DEPTH > 0 plies below BOARD
+     *  following each of its moves, in move-generation order.  The root
+     *  moves are shared among THREADS threads, each with its own Board. */
+    static Map<Move, Long> divide(Board board, int depth, int threads) {
+        List<Move> rootMoves = new ArrayList<>();
+        if (board.getWinner() == null) {
+            int[] buffer = new int[Board.MAX_MOVES];
+            int n = board.generateMoves(buffer, true);
+            for (int i = 0; i < n; i += 1) {
+                rootMoves.add(Move.unpack(buffer[i]));
+            }
+            if (n == 0) {
+                rootMoves.add(Move.pass());
+            }
+        }
+
+        Map<Move, Long> result = new LinkedHashMap<>();
+        if (threads <= 1) {
+            for (Move move : rootMoves) {
+                result.put(move, countAfter(board, move, depth - 1));
+            }
+            return result;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> counts = new ArrayList<>();
+            for (Move move : rootMoves) {
+                counts.add(pool.submit(() ->
+                    countAfter(board, move, depth - 1)));
+            }
+            for (int i = 0; i < rootMoves.size(); i += 1) {
+                result.put(rootMoves.get(i), counts.get(i).get());
+            }
+        } catch (InterruptedException | ExecutionException excp) {
+            throw error("perft failed: %s", excp);
+        } finally {
+            pool.shutdown();
+        }
+        return result;
+    }
+
+    /** Return the number of leaf nodes DEPTH plies below the position
+     *  after MOVE on BOARD, which is not changed. */
+    private static long countAfter(Board board, Move move, int depth) {
+        Perft perft = new Perft(board);
+        perft.board.makeMove(move);
+        return perft.count(depth);
+    }
+
+    /** My private board. */
+    private final Board board;
+
+    /** Move buffers, indexed by remaining depth. */
+    private int[][] moves;
+}
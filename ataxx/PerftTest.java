@@ -0,0 +1,61 @@
+package ataxx;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class PerftTest {
+
+    /** Check that perft of B gives the EXPECTED counts, starting at
+     *  depth 1. */
+    private static void checkCounts(Board b, long... expected) {
+        for (int depth = 1; depth <= expected.length; depth++) {
+            assertEquals("perft " + depth, expected[depth - 1],
+                    Perft.perft(b, depth));
+        }
+    }
+
+    @Test
+    public void testStartPosition() {
+        checkCounts(new Board(), 16, 256, 6460, 155888);
+    }
+
+    @Test
+    public void testFourBlocks() {
+        Board b = new Board();
+        b.setBlock('c', '3');
+        checkCounts(b, 14, 196, 4184, 86528);
+    }
+
+    @Test
+    public void testCrossBlocks() {
+        Board b = new Board();
+        b.setBlock('d', '5');
+        b.setBlock('c', '4');
+        checkCounts(b, 16, 256, 5948, 133264);
+    }
+
+    @Test
+    public void testFiveBlocks() {
+        Board b = new Board();
+        b.setBlock('c', '3');
+        b.setBlock('d', '4');
+        checkCounts(b, 14, 196, 4100, 83104);
+    }
+
+    @Test
+    public void testParallelDivide() {
+        Board b = new Board();
+        b.setBlock('c', '3');
+        Map<Move, Long> serial = Perft.divide(b, 4, 1);
+        Map<Move, Long> parallel = Perft.divide(b, 4, 4);
+        assertEquals(serial, parallel);
+        long total = 0;
+        for (long n : parallel.values()) {
+            total += n;
+        }
+        assertEquals(86528, total);
+    }
+}
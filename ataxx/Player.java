@@ -19,6 +19,11 @@ abstract class Player {
         return false;
     }
 
+    /** Stop any thinking I am doing in the background, as when I am
+     *  replaced by another player. */
+    void stopThinking() {
+    }
+
     /** Return the AtaxxGame I am playing in. */
     Game getAtaxxGame() {
         return ataxxGame;
@@ -0,0 +1,140 @@
+package ataxx;
+
+import static ataxx.PieceState.*;
+
+/** Analysis of the empty squares of a Board as separate regions: sets of
+ *  empty squares connected through neighbouring empty squares, found by
+ *  flood fill on bit masks.  Blocks and pieces often cut a late position
+ *  into several such pockets.
+ *
+ *  Regions are not independent subgames in general: a piece can jump
+ *  from the edge of one region into another, and the side with spare
+ *  moves in a region of its own can pass the move in another.  They are
+ *  independent, however, in a position that is "settled": one where no
+ *  piece is within jumping distance of an opposing piece, and every
+ *  region that either side can reach is reachable by that side alone and
+ *  touches one of its pieces, and no side can end the game at once by
+ *  making the last jump allowed by CONSEC_JUMP_LIMIT.  Each side then
+ *  simply fills its own regions, and the outcome follows by adding up
+ *  region sizes.  (Further from the jump limit, a side can only end the
+ *  game early by jumping while its opponent, who would lose the squares
+ *  it has yet to fill, can clone and so reset the count.) */
+class Regions {
+
+    /** Write the regions of the squares in EMPTY into REGIONS[0 .. n-1],
+     *  in order of their lowest squares, and return n.  REGIONS must have
+     *  room for MAX_REGIONS entries. */
+    static int split(long empty, long[] regions) {
+        int n = 0;
+        for (long left = empty; left != 0; left &= ~regions[n - 1]) {
+            regions[n++] = fill(left & -left, empty);
+        }
+        return n;
+    }
+
+    /** Return the region of the squares in EMPTY that contains the
+     *  squares of SEED, a subset of EMPTY. */
+    static long fill(long seed, long empty) {
+        long region = seed, last;
+        do {
+            last = region;
+            region = Board.grow(region) & empty;
+        } while (region != last);
+        return region;
+    }
+
+    /** Return the mask of squares at most two squares (one jump) away
+     *  from a square of MASK. */
+    static long reach(long mask) {
+        return Board.grow(Board.grow(mask));
+    }
+
+    /** Return the side whose pieces can move into REGION on BOARD: RED
+     *  or BLUE if only that side's, EMPTY if neither side's, and null if
+     *  both sides' can. */
+    static PieceState owner(Board board, long region) {
+        return owner(board.pieces(RED), board.pieces(BLUE), region);
+    }
+
+    /** Return the side whose pieces can move into REGION when RED and
+     *  BLUE are the masks of their pieces, as for owner(Board, long). */
+    private static PieceState owner(long redPieces, long bluePieces,
+                                    long region) {
+        long near = reach(region);
+        boolean red = (near & redPieces) != 0;
+        boolean blue = (near & bluePieces) != 0;
+        if (red && blue) {
+            return null;
+        }
+        return red ? RED : blue ? BLUE : EMPTY;
+    }
+
+    /** Return the number of empty squares on BOARD in regions that only
+     *  WHO can move into, less the number in regions that only WHO's
+     *  opponent can move into. */
+    static int territory(Board board, PieceState who) {
+        long empty = board.emptySquares();
+        int total = 0;
+        for (long left = empty, region; left != 0; left &= ~region) {
+            region = fill(left & -left, empty);
+            PieceState owner = owner(board, region);
+            if (owner == who) {
+                total += Long.bitCount(region);
+            } else if (owner == who.opposite()) {
+                total -= Long.bitCount(region);
+            }
+        }
+        return total;
+    }
+
+    /** If the position on BOARD is settled (see above), return its final
+     *  piece differential for the side to move, when each side has
+     *  filled its own regions.  Otherwise return UNSETTLED.  Filling a
+     *  region may bring pieces within reach of a region that no one could
+     *  reach before, so the position must stay settled after each round
+     *  of filling until no reachable region is left. */
+    static int settledScore(Board board) {
+        if (board.getConsecJumpNums() >= Board.CONSEC_JUMP_LIMIT - 1) {
+            return UNSETTLED;
+        }
+        long red = board.pieces(RED), blue = board.pieces(BLUE);
+        long empty = board.emptySquares();
+        while (true) {
+            if ((reach(red) & blue) != 0) {
+                return UNSETTLED;
+            }
+            long redFill = 0, blueFill = 0;
+            for (long left = empty, region; left != 0; left &= ~region) {
+                region = fill(left & -left, empty);
+                PieceState owner = owner(red, blue, region);
+                if (owner == null) {
+                    return UNSETTLED;
+                } else if (owner == RED
+                           && (Board.grow(region) & red) != 0) {
+                    redFill |= region;
+                } else if (owner == BLUE
+                           && (Board.grow(region) & blue) != 0) {
+                    blueFill |= region;
+                } else if (owner != EMPTY) {
+                    return UNSETTLED;
+                }
+            }
+            if ((redFill | blueFill) == 0) {
+                break;
+            }
+            red |= redFill;
+            blue |= blueFill;
+            empty &= ~(redFill | blueFill);
+        }
+        int diff = Long.bitCount(red) - Long.bitCount(blue);
+        return board.nextMove() == RED ? diff : -diff;
+    }
+
+    /** The most regions there can be: no two squares of different
+     *  regions are neighbours, so at most one square in each two-by-two
+     *  block of the board starts a region. */
+    static final int MAX_REGIONS = 16;
+
+    /** Returned by settledScore for an unsettled position. */
+    static final int UNSETTLED = Integer.MIN_VALUE;
+}
@@ -0,0 +1,174 @@
+package ataxx;
+
+import org.junit.Test;
+
+import static ataxx.PieceState.*;
+import static org.junit.Assert.*;
+
+public class RegionsTest {
+
+    /** Return a board with every square set to BLOCKED except the
+     *  squares of the rows in LAYOUT, top row first, where 'r' and 'b'
+     *  are pieces, '-' is empty and 'X' is blocked. */
+    private static Board board(String... layout) {
+        return layout(new Board(), layout);
+    }
+
+    /** Return B with every square set as in LAYOUT, as for board. */
+    static Board layout(Board b, String... layout) {
+        for (int i = 0; i < 7; i++) {
+            for (int j = 0; j < 7; j++) {
+                char c = (char) ('a' + j), r = (char) ('7' - i);
+                switch (layout[i].charAt(j)) {
+                case 'r':
+                    b.setContent(c, r, RED);
+                    break;
+                case 'b':
+                    b.setContent(c, r, BLUE);
+                    break;
+                case '-':
+                    b.setContent(c, r, EMPTY);
+                    break;
+                default:
+                    b.setContent(c, r, BLOCKED);
+                    break;
+                }
+            }
+        }
+        return b;
+    }
+
+    @Test
+    public void testSplit() {
+        Board b = board("r--XXXX",
+                        "XXXXXXX",
+                        "XXXXXXX",
+                        "XXXX-XX",
+                        "XXXXXXX",
+                        "XXXXXXX",
+                        "b-XXXX-");
+        long[] regions = new long[Regions.MAX_REGIONS];
+        int n = Regions.split(b.emptySquares(), regions);
+        assertEquals(4, n);
+        long all = 0;
+        for (int i = 0; i < n; i++) {
+            assertEquals(0L, all & regions[i]);
+            all |= regions[i];
+        }
+        assertEquals(b.emptySquares(), all);
+        assertEquals(1L << Board.bit('b', '1'), regions[0]);
+    }
+
+    @Test
+    public void testOwnersAndTerritory() {
+        Board b = board("r--XXXX",
+                        "XXXXXXX",
+                        "XXXXXXX",
+                        "XXXX-XX",
+                        "XXXXXXX",
+                        "XXXXXXX",
+                        "b-XXXX-");
+        long top = Regions.fill(1L << Board.bit('b', '7'), b.emptySquares());
+        assertEquals(RED, Regions.owner(b, top));
+        long middle = Regions.fill(1L << Board.bit('e', '4'),
+                b.emptySquares());
+        assertEquals(EMPTY, Regions.owner(b, middle));
+        assertEquals(2 - 1, Regions.territory(b, RED));
+        assertEquals(1 - 2, Regions.territory(b, BLUE));
+    }
+
+    @Test
+    public void testSettledScore() {
+        Board b = board("r--XXXX",
+                        "XXXXXXX",
+                        "XXXXXXX",
+                        "XXXX-XX",
+                        "XXXXXXX",
+                        "XXXXXXX",
+                        "b-XXXX-");
+        assertEquals((1 + 2) - (1 + 1), Regions.settledScore(b));
+        Board contested = board("r-bXXXX",
+                                "XXXXXXX",
+                                "XXXXXXX",
+                                "XXXXXXX",
+                                "XXXXXXX",
+                                "XXXXXXX",
+                                "XXXXXXX");
+        assertEquals(Regions.UNSETTLED, Regions.settledScore(contested));
+    }
+
+    @Test
+    public void testFillingReachesNewRegion() {
+        Board b = board("r--XXXX",
+                        "XXXXXXX",
+                        "XXX-XXX",
+                        "XXX-XXX",
+                        "XXXXXXX",
+                        "XXXXXXX",
+                        "b-XXXX-");
+        assertEquals(Regions.UNSETTLED, Regions.settledScore(b));
+        EndgameSolver solver = new EndgameSolver(b);
+        solver.findMove();
+        assertTrue(solver.solved());
+        assertEquals(5 - 2, solver.bestScore());
+    }
+
+    @Test
+    public void testSolverAgreesWithSettledScore() {
+        Board b = board("r--XXXX",
+                        "XXXXXXX",
+                        "XXXXXXX",
+                        "XXXX-XX",
+                        "XXXXXXX",
+                        "XXXXXXX",
+                        "b-XXXX-");
+        EndgameSolver solver = new EndgameSolver(b);
+        solver.findMove();
+        assertTrue(solver.solved());
+        assertEquals(Regions.settledScore(b), solver.bestScore());
+    }
+
+    /** Return the initial board after JUMPS jumps in a row, back and
+     *  forth between a7 and c5 for red and between a1 and c3 for blue, so
+     *  that getConsecJumpNums() is JUMPS.  The pieces are back where they
+     *  started, with red to move, when JUMPS is a multiple of 4. */
+    static Board afterJumps(int jumps) {
+        Board b = new Board();
+        String[] cycle = { "a7-c5", "a1-c3", "c5-a7", "c3-a1" };
+        for (int i = 0; i < jumps; i++) {
+            b.makeMove(Move.move(cycle[i % 4]));
+        }
+        return b;
+    }
+
+    /** Return a position with red to move after 24 jumps in a row, in
+     *  which the filled-in result would be -4, but the jump a7-c7 ends
+     *  the game at once, level. */
+    static Board jumpLimitBoard() {
+        return layout(afterJumps(Board.CONSEC_JUMP_LIMIT - 1),
+                      "r--XXXX",
+                      "XXXXXXX",
+                      "XXXXXXX",
+                      "XXXXXXX",
+                      "XXXXXXX",
+                      "XXX----",
+                      "XXXXb--");
+    }
+
+    @Test
+    public void testNotSettledNearJumpLimit() {
+        Board b = jumpLimitBoard();
+        assertEquals(24, b.getConsecJumpNums());
+        assertEquals(RED, b.nextMove());
+        assertEquals(Regions.UNSETTLED, Regions.settledScore(b));
+        Board fresh = layout(new Board(),
+                             "r--XXXX",
+                             "XXXXXXX",
+                             "XXXXXXX",
+                             "XXXXXXX",
+                             "XXXXXXX",
+                             "XXX----",
+                             "XXXXb--");
+        assertEquals((1 + 2) - (1 + 6), Regions.settledScore(fresh));
+    }
+}
@@ -0,0 +1,655 @@
+package ataxx;
+
+import java.util.Arrays;
+
+import static ataxx.PieceState.*;
+
+/** An iterative-deepening negamax alpha-beta search for the best move
+ *  from a position.  A Search works on its own copy of the Board it is
+ *  given, making and taking back moves in place, so the caller's board
+ *  is never changed and one Search must only be used by one thread.
+ *  Its TranspositionTable, however, may be shared with other Searches. */
+class Search implements Searcher {
+
+    /** A Search for the side to move on BOARD, looking at most MAXDEPTH
+     *  plies ahead, with a small transposition table of its own. */
+    Search(Board board, int maxDepth) {
+        this(board, maxDepth, new TranspositionTable(1));
+    }
+
+    /** A Search for the side to move on BOARD, looking at most MAXDEPTH
+     *  plies ahead and recording its results in TABLE. */
+    Search(Board board, int maxDepth, TranspositionTable table) {
+        this.board = new Board(board);
+        this.maxDepth = maxDepth;
+        this.table = table;
+        killers = new int[2 * (Math.max(maxDepth, 0) + 1)];
+    }
+
+    /** Return the best move found (packed as by Move.pack) by searching
+     *  to depths 1, 2, ..., maxDepth in turn (starting instead at the
+     *  depth given to setFirstDepth, if any), or until the time limit
+     *  passes or stop() is called, whichever is first.  The result is
+     *  then the best move of the deepest search, where a move that beat
+     *  the previous best in an unfinished search counts.  Returns
+     *  Move.PASS_MOVE if the side to move has no move. */
+    @Override
+    public int findMove() {
+        long start = System.nanoTime();
+        deadline = timeLimit > 0 ? start + timeLimit * 1000000 : 0;
+        stopped = stopRequested;
+        nodes = 0;
+        cutoffs = firstMoveCutoffs = 0;
+        completedDepth = 0;
+        bestScore = scoreBefore = lastScore = 0;
+        Arrays.fill(killers, Move.PASS_MOVE);
+        for (int i = 0; i < history.length; i += 1) {
+            history[i] >>= 1;
+        }
+        symmetric = mirrors && Symmetry.symmetries(board) != 1;
+        int[] moves = movesAt(0);
+        int n = board.generateMoves(moves, true);
+        moveToFront(moves, n,
+                    TranspositionTable.move(table.probe(board.key())));
+        bestMove = n == 0 ? Move.PASS_MOVE : moves[0];
+        for (int depth = firstDepth; depth <= maxDepth && !stopped;
+             depth += 1) {
+            int alpha = -INFINITY, beta = INFINITY;
+            if (aspiration && depth > firstDepth + 1
+                && Math.abs(scoreBefore) < WIN_BOUND) {
+                alpha = scoreBefore - ASPIRATION_WINDOW;
+                beta = scoreBefore + ASPIRATION_WINDOW;
+            }
+            scoreBefore = lastScore;
+            while (!stopped) {
+                int score = searchRoot(depth, alpha, beta);
+                if (score <= alpha) {
+                    alpha = -INFINITY;
+                } else if (score >= beta) {
+                    beta = INFINITY;
+                } else {
+                    break;
+                }
+            }
+            if (!stopped) {
+                completedDepth = depth;
+                lastScore = bestScore;
+            }
+        }
+        return bestMove;
+    }
+
+    /** Search the root position to DEPTH plies within the window
+     *  ALPHA .. BETA, updating bestMove and bestScore as moves are found
+     *  to be better, and return the best score found.  The best move so
+     *  far is tried first.  If the root is symmetric, only one of each
+     *  set of moves that are mirror images under its symmetries is
+     *  searched. */
+    private int searchRoot(int depth, int alpha, int beta) {
+        int[] moves = movesAt(0);
+        int n = board.generateMoves(moves, true);
+        if (symmetric) {
+            n = Symmetry.distinctMoves(board, moves, n);
+        }
+        if (n == 0) {
+            board.makeMove(Move.PASS_MOVE);
+            int score = -negamax(depth - 1, -beta, -alpha, 1);
+            board.undoMove();
+            if (!stopped) {
+                bestScore = score;
+            }
+            return score;
+        }
+        orderMoves(moves, n, 0, bestMove);
+        int alpha0 = alpha;
+        int best = -INFINITY;
+        for (int i = 0; i < n && alpha < beta; i += 1) {
+            board.makeMove(moves[i]);
+            int score = searchChild(i, 0, depth, alpha, beta, 0);
+            board.undoMove();
+            if (stopped) {
+                return best;
+            }
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    bestMove = moves[i];
+                    bestScore = score;
+                }
+            }
+        }
+        if (best > alpha0 && best < beta) {
+            table.store(board.key(), bestMove, depth,
+                        TranspositionTable.EXACT, toTable(best, 0));
+        }
+        return best;
+    }
+
+    /** Return the value, for the side that just moved, of the current
+     *  position, reached by the Ith move tried from its parent, which
+     *  was DEPTH plies from the leaves and PLY plies from the root,
+     *  within ALPHA .. BETA.  The first move gets the full window.  Later
+     *  ones get a null window (if PVS is on) and, if REDUCTION is
+     *  positive, that many plies less, and are searched again in full
+     *  only if they fail high. */
+    private int searchChild(int i, int reduction, int depth, int alpha,
+                            int beta, int ply) {
+        if (i == 0) {
+            return -negamax(depth - 1, -beta, -alpha, ply + 1);
+        }
+        int window = pvs ? alpha + 1 : beta;
+        int score = -negamax(depth - 1 - reduction, -window, -alpha, ply + 1);
+        if (score > alpha && reduction > 0) {
+            score = -negamax(depth - 1, -window, -alpha, ply + 1);
+        }
+        if (score > alpha && score < beta && window < beta) {
+            score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+        }
+        return score;
+    }
+
+    /** Return the number of plies by which to reduce the search of the
+     *  packed MOVE, the Ith tried at a node DEPTH plies from the leaves:
+     *  1 for a late jump that converts nothing, if reductions are on,
+     *  and otherwise 0. */
+    private int reduction(int move, int i, int depth) {
+        if (!reductions || depth < REDUCTION_DEPTH || i < REDUCTION_MOVES
+            || !Move.isJump(move)
+            || board.captures(Move.toBit(move), board.nextMove()) != 0) {
+            return 0;
+        }
+        return 1;
+    }
+
+    /** Limit findMove to MILLIS milliseconds of searching (0 for no
+     *  limit). */
+    @Override
+    public void setTimeLimit(long millis) {
+        timeLimit = millis;
+    }
+
+    /** Make findMove start iterative deepening at DEPTH rather than 1.
+     *  Helper searches that share a table use this to stagger their
+     *  depths. */
+    void setFirstDepth(int depth) {
+        firstDepth = Math.max(1, depth);
+    }
+
+    /** Make the current findMove, if any, return as soon as possible with
+     *  the best move found so far, as will any later findMove.  May be
+     *  called from any thread. */
+    @Override
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /** Return true iff the search should stop now, checking the clock
+     *  only every CHECK_INTERVAL + 1 positions. */
+    private boolean outOfTime() {
+        if (!stopped && (nodes & CHECK_INTERVAL) == 0) {
+            stopped = stopRequested
+                || (deadline != 0 && System.nanoTime() - deadline > 0);
+        }
+        return stopped;
+    }
+
+    /** Return the negamax value, from the point of view of the side to
+     *  move, of the current position searched DEPTH more plies, PLY plies
+     *  from the root, within the window ALPHA .. BETA. */
+    private int negamax(int depth, int alpha, int beta, int ply) {
+        nodes += 1;
+        if (outOfTime()) {
+            return 0;
+        }
+        PieceState winner = board.getWinner();
+        if (winner != null) {
+            return terminalScore(board, winner, ply);
+        }
+        if (tablebase != null && depth > 1
+            && Long.bitCount(board.emptySquares()) <= tablebase.maxEmpties()) {
+            int entry = tablebase.probe(board.key());
+            if (entry != Tablebase.NONE) {
+                return tablebaseScore(Tablebase.score(entry), ply);
+            }
+        }
+        if (depth <= 0) {
+            return evaluate();
+        }
+
+        int t = symmetric && depth >= MIRROR_DEPTH
+            ? Symmetry.canonical(board) : 0;
+        long key = Symmetry.key(board, t);
+        long entry = table.probe(key);
+        int tableMove = Move.PASS_MOVE;
+        if (entry != 0) {
+            tableMove = Symmetry.move(TranspositionTable.move(entry),
+                                      Symmetry.inverse(t));
+            if (TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                switch (TranspositionTable.bound(entry)) {
+                case TranspositionTable.EXACT:
+                    return score;
+                case TranspositionTable.LOWER:
+                    if (score >= beta) {
+                        return score;
+                    }
+                    break;
+                default:
+                    if (score <= alpha) {
+                        return score;
+                    }
+                    break;
+                }
+            }
+        }
+
+        int[] moves = movesAt(ply);
+        int n = board.generateMoves(moves, true);
+        if (n == 0) {
+            board.makeMove(Move.PASS_MOVE);
+            int score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+            board.undoMove();
+            return score;
+        }
+        orderMoves(moves, n, ply, tableMove);
+        int alpha0 = alpha;
+        int best = -INFINITY, bestMove = moves[0];
+        for (int i = 0; i < n; i += 1) {
+            int reduction = reduction(moves[i], i, depth);
+            board.makeMove(moves[i]);
+            int score = searchChild(i, reduction, depth, alpha, beta, ply);
+            board.undoMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = moves[i];
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        recordCutoff(moves[i], i, depth, ply);
+                        break;
+                    }
+                }
+            }
+        }
+        int bound = best >= beta ? TranspositionTable.LOWER
+            : best > alpha0 ? TranspositionTable.EXACT
+            : TranspositionTable.UPPER;
+        table.store(key, Symmetry.move(bestMove, t), depth, bound,
+                    toTable(best, ply));
+        return best;
+    }
+
+    /** Make findMove order moves by the heuristics of orderMoves iff ON
+     *  (the default), rather than just trying the table's move first. */
+    void setOrdering(boolean on) {
+        ordering = on;
+    }
+
+    /** Make searches use a null window for all but the first move at
+     *  each node (principal variation search) iff ON (the default). */
+    void setPVS(boolean on) {
+        pvs = on;
+    }
+
+    /** Make each iteration of findMove after the second start with a
+     *  narrow window around the score of the iteration of the same
+     *  parity before it, widening it if that fails, iff ON (the
+     *  default). */
+    void setAspiration(boolean on) {
+        aspiration = on;
+    }
+
+    /** Make searches from symmetric positions search only one of each
+     *  set of mirror-image moves at the root, and share table entries
+     *  between mirror-image positions, iff ON (the default). */
+    void setMirrors(boolean on) {
+        mirrors = on;
+    }
+
+    /** Make searches reduce the depth of late jumps that convert nothing
+     *  (late move reductions) iff ON (the default). */
+    void setReductions(boolean on) {
+        reductions = on;
+    }
+
+    /** Sort MOVES[0 .. N-1], the moves PLY plies from the root, so that
+     *  the likeliest best come first: TABLEMOVE, then the others by the
+     *  number of pieces they convert, with clones before jumps, then
+     *  this ply's killer moves, and then by history score. */
+    private void orderMoves(int[] moves, int n, int ply, int tableMove) {
+        if (!ordering) {
+            moveToFront(moves, n, tableMove);
+            return;
+        }
+        orderMoves(board, moves, n, tableMove, killers[2 * ply],
+                   killers[2 * ply + 1], history, scores);
+    }
+
+    /** Sort MOVES[0 .. N-1], the moves from the position on BOARD, as
+     *  orderMoves does, given TABLEMOVE, the ply's killer moves KILLER0
+     *  and KILLER1 and the history scores HISTORY, and using SCORES, of
+     *  length at least N, for the moves' ordering scores. */
+    static void orderMoves(Board board, int[] moves, int n, int tableMove,
+                           int killer0, int killer1, int[] history,
+                           int[] scores) {
+        PieceState me = board.nextMove();
+        long theirs = board.pieces(me.opposite());
+        int side = me == BLUE ? HISTORY_SIZE : 0;
+        for (int i = 0; i < n; i += 1) {
+            int move = moves[i];
+            int score;
+            if (move == tableMove) {
+                score = Integer.MAX_VALUE;
+            } else {
+                score = Long.bitCount(Board.CLONE_REACH[Move.toBit(move)]
+                                      & theirs) << FLIPS_SHIFT
+                    | (Move.isClone(move) ? CLONE_BONUS : 0)
+                    | (move == killer0 ? KILLER_BONUS
+                       : move == killer1 ? KILLER_BONUS >> 1 : 0)
+                    | history[side + move];
+            }
+            int j;
+            for (j = i; j > 0 && scores[j - 1] < score; j -= 1) {
+                scores[j] = scores[j - 1];
+                moves[j] = moves[j - 1];
+            }
+            scores[j] = score;
+            moves[j] = move;
+        }
+    }
+
+    /** Record that MOVE, the Ith tried, caused a cutoff DEPTH plies from
+     *  the leaves and PLY plies from the root: count it, make it this
+     *  ply's first killer, and credit its history. */
+    private void recordCutoff(int move, int i, int depth, int ply) {
+        cutoffs += 1;
+        if (i == 0) {
+            firstMoveCutoffs += 1;
+        }
+        recordCutoff(board, move, depth, ply, killers, history);
+    }
+
+    /** Record in KILLERS and HISTORY, as recordCutoff does, that MOVE
+     *  from the position on BOARD caused a cutoff DEPTH plies from the
+     *  leaves and PLY plies from the root. */
+    static void recordCutoff(Board board, int move, int depth, int ply,
+                             int[] killers, int[] history) {
+        if (killers[2 * ply] != move) {
+            killers[2 * ply + 1] = killers[2 * ply];
+            killers[2 * ply] = move;
+        }
+        int index = (board.nextMove() == BLUE ? HISTORY_SIZE : 0) + move;
+        history[index] += depth * depth;
+        if (history[index] > HISTORY_LIMIT) {
+            for (int k = 0; k < history.length; k += 1) {
+                history[k] >>= 1;
+            }
+        }
+    }
+
+    /** Return the fraction of the beta cutoffs in the last findMove that
+     *  were caused by the first move tried (1 if there were none). */
+    double firstMoveCutoffRate() {
+        return cutoffs == 0 ? 1.0 : (double) firstMoveCutoffs / cutoffs;
+    }
+
+    /** Return the move (packed) stored in TABLE for the position on
+     *  BOARD, under its own key or else under that of its canonical form
+     *  (as searches from symmetric roots store it), or Move.PASS_MOVE if
+     *  there is none. */
+    static int tableMove(TranspositionTable table, Board board) {
+        long entry = table.probe(board.key());
+        if (entry != 0) {
+            return TranspositionTable.move(entry);
+        }
+        int t = Symmetry.canonical(board);
+        entry = table.probe(Symmetry.key(board, t));
+        return entry == 0 ? Move.PASS_MOVE
+            : Symmetry.move(TranspositionTable.move(entry),
+                            Symmetry.inverse(t));
+    }
+
+    /** Return the depth of the entry in TABLE for the position on BOARD,
+     *  probing it as tableMove does, or 0 if there is none. */
+    static int tableDepth(TranspositionTable table, Board board) {
+        long entry = table.probe(board.key());
+        if (entry == 0) {
+            entry = table.probe(Symmetry.canonicalKey(board));
+        }
+        return entry == 0 ? 0 : TranspositionTable.depth(entry);
+    }
+
+    /** If MOVE is among MOVES[0 .. N-1], move it to MOVES[0], keeping
+     *  the order of the others otherwise unchanged. */
+    static void moveToFront(int[] moves, int n, int move) {
+        for (int i = 0; i < n; i += 1) {
+            if (moves[i] == move) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = move;
+                return;
+            }
+        }
+    }
+
+    /** Return SCORE, found PLY plies from the root, as stored in the
+     *  table: win and loss scores count plies from the stored position
+     *  rather than from the root. */
+    static int toTable(int score, int ply) {
+        if (score > WIN_BOUND) {
+            return score + ply;
+        } else if (score < -WIN_BOUND) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    /** Return the table score SCORE as seen PLY plies from the root. */
+    static int fromTable(int score, int ply) {
+        if (score > WIN_BOUND) {
+            return score - ply;
+        } else if (score < -WIN_BOUND) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /** Return the score of a finished game on BOARD won by WINNER (EMPTY
+     *  for a draw) PLY plies from the root, for the side to move.  Quicker
+     *  wins and slower losses score better. */
+    static int terminalScore(Board board, PieceState winner, int ply) {
+        if (winner == EMPTY) {
+            return 0;
+        }
+        return winner == board.nextMove() ? WIN - ply : ply - WIN;
+    }
+
+    /** Return the search score, PLY plies from the root, of a position
+     *  whose exact final piece differential, for the side to move, is
+     *  DIFF: a win or loss (ranked by DIFF) at an unknown distance,
+     *  counted as TABLEBASE_PLIES, or a draw. */
+    static int tablebaseScore(int diff, int ply) {
+        if (diff == 0) {
+            return 0;
+        }
+        int score = WIN - TABLEBASE_PLIES - ply + Math.abs(diff);
+        return diff > 0 ? score : -score;
+    }
+
+    @Override
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    @Override
+    public void setEvaluator(Evaluator evaluator) {
+        this.evaluator = evaluator;
+    }
+
+    /** Return the static value of the current position for the side to
+     *  move, by my Evaluator. */
+    private int evaluate() {
+        return evaluator.evaluate(board);
+    }
+
+    /** Return the static value of BOARD for its side to move by the
+     *  default Evaluator: the piece difference, late in the game counting
+     *  regions that only one side can reach (Regions.territory) as its
+     *  pieces, plus a smaller bonus for mobility. */
+    static int evaluate(Board board) {
+        return WeightedEvaluator.DEFAULT.evaluate(board);
+    }
+
+    /** Return the move buffer for PLY, creating it if need be. */
+    private int[] movesAt(int ply) {
+        if (ply >= moveStack.length) {
+            int[][] bigger = new int[2 * ply + 1][];
+            System.arraycopy(moveStack, 0, bigger, 0, moveStack.length);
+            moveStack = bigger;
+        }
+        if (moveStack[ply] == null) {
+            moveStack[ply] = new int[Board.MAX_MOVES];
+        }
+        return moveStack[ply];
+    }
+
+    /** Return the score of the best move found by the last findMove, for
+     *  the side to move at the root. */
+    @Override
+    public int bestScore() {
+        return bestScore;
+    }
+
+    /** Return the deepest depth fully searched by the last findMove. */
+    @Override
+    public int completedDepth() {
+        return completedDepth;
+    }
+
+    /** Return the number of positions visited by the last findMove. */
+    @Override
+    public long nodes() {
+        return nodes;
+    }
+
+    /** Scores above this (in absolute value) are wins or losses. */
+    static final int WIN = 100000;
+
+    /** Deepest search depth. */
+    static final int MAX_DEPTH = 64;
+
+    /** A score beyond every real score. */
+    static final int INFINITY = 1000000;
+
+    /** Scores beyond this (in absolute value) are wins or losses a
+     *  known number of plies away. */
+    private static final int WIN_BOUND = WIN - 1000;
+
+    /** Plies to the end assumed for a win or loss found in a Tablebase. */
+    private static final int TABLEBASE_PLIES = 500;
+
+    /** My private board. */
+    private final Board board;
+
+    /** Solved positions, or null if none.  They are looked up only
+     *  where at least two plies remain, since a probe there saves more
+     *  search than it costs, and only with few enough empty squares. */
+    private Tablebase tablebase;
+
+    /** Values the positions at my leaves. */
+    private Evaluator evaluator = WeightedEvaluator.DEFAULT;
+
+    /** Where I record and look up the results of searches. */
+    private final TranspositionTable table;
+
+    /** The maximum depth to search, in plies. */
+    private final int maxDepth;
+
+    /** Move buffers, indexed by ply from the root. */
+    private int[][] moveStack = new int[INITIAL_PLIES][];
+
+    /** True iff orderMoves uses all its heuristics. */
+    private boolean ordering = true;
+
+    /** Switches for principal variation search, aspiration windows and
+     *  late move reductions. */
+    private boolean pvs = true, aspiration = true, reductions = true;
+
+    /** True iff setMirrors is on, and iff it is on and the root of the
+     *  current findMove is symmetric. */
+    private boolean mirrors = true, symmetric;
+
+    /** Nodes at least MIRROR_DEPTH plies from the leaves of a search
+     *  from a symmetric root are stored in the table under the keys of
+     *  their canonical forms (see Symmetry), with their moves as played
+     *  there. */
+    static final int MIRROR_DEPTH = 2;
+
+    /** Half the width of aspiration windows. */
+    private static final int ASPIRATION_WINDOW = 30;
+
+    /** Scores of the last two completed iterations of findMove.  Scores
+     *  swing between odd and even depths, so aspiration windows are
+     *  centred on scoreBefore, from the iteration before last. */
+    private int scoreBefore, lastScore;
+
+    /** Only nodes at least REDUCTION_DEPTH plies from the leaves reduce
+     *  moves, and only from the REDUCTION_MOVES'th move tried on. */
+    private static final int REDUCTION_DEPTH = 3, REDUCTION_MOVES = 4;
+
+    /** Scores of the moves being sorted by orderMoves. */
+    private final int[] scores = new int[Board.MAX_MOVES];
+
+    /** Two killer moves (packed) for each ply: the last two different
+     *  moves to cause a cutoff there. */
+    private final int[] killers;
+
+    /** History scores of each side's packed moves (BLUE's from
+     *  HISTORY_SIZE on), credited by the square of the remaining depth
+     *  whenever they cause a cutoff. */
+    private final int[] history = new int[2 * HISTORY_SIZE];
+
+    /** Beta cutoffs in the last findMove, and those caused by the first
+     *  move tried. */
+    private long cutoffs, firstMoveCutoffs;
+
+    /** Entries for each side in history: one per packed move. */
+    static final int HISTORY_SIZE = Move.PASS_MOVE + 1;
+
+    /** Ordering score components, in decreasing order of weight.  History
+     *  scores stay below KILLER_BONUS / 2. */
+    private static final int FLIPS_SHIFT = 24, CLONE_BONUS = 1 << 23,
+        KILLER_BONUS = 1 << 22, HISTORY_LIMIT = (1 << 21) - 1;
+
+    /** Initial number of plies with move buffers. */
+    private static final int INITIAL_PLIES = 16;
+
+    /** Results of the last findMove. */
+    private int bestMove, bestScore, completedDepth;
+
+    /** Positions visited by the last findMove. */
+    private long nodes;
+
+    /** Depth of the first iteration of findMove. */
+    private int firstDepth = 1;
+
+    /** Time limit in milliseconds, or 0 for none. */
+    private long timeLimit;
+
+    /** System.nanoTime() at which the current findMove must stop, or 0
+     *  for no limit. */
+    private long deadline;
+
+    /** True once the current findMove has run out of time or been
+     *  stopped. */
+    private boolean stopped;
+
+    /** Set by stop(), possibly from another thread. */
+    private volatile boolean stopRequested;
+
+    /** The clock is checked when (nodes & CHECK_INTERVAL) == 0. */
+    private static final int CHECK_INTERVAL = 1023;
+}
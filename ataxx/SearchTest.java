@@ -0,0 +1,206 @@
+package ataxx;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static ataxx.PieceState.*;
+import static org.junit.Assert.*;
+
+public class SearchTest {
+
+    /** Return the plain negamax value of B to DEPTH plies, PLY plies from
+     *  the root, scored as Search scores it. */
+    private static int minimax(Board b, int depth, int ply) {
+        PieceState winner = b.getWinner();
+        if (winner != null) {
+            if (winner == EMPTY) {
+                return 0;
+            }
+            return winner == b.nextMove() ? Search.WIN - ply
+                    : ply - Search.WIN;
+        }
+        if (depth == 0) {
+            return Search.evaluate(b);
+        }
+        int[] moves = new int[Board.MAX_MOVES];
+        int n = b.generateMoves(moves, true);
+        if (n == 0) {
+            moves[n++] = Move.PASS_MOVE;
+        }
+        int best = -Search.INFINITY;
+        for (int i = 0; i < n; i++) {
+            b.makeMove(moves[i]);
+            best = Math.max(best, -minimax(b, depth - 1, ply + 1));
+            b.undoMove();
+        }
+        return best;
+    }
+
+    /** Return a board after PLIES random moves from the start, with
+     *  blocks at c3 and its reflections. */
+    static Board randomBoard(long seed, int plies) {
+        Random rnd = new Random(seed);
+        Board b = new Board();
+        b.setBlock('c', '3');
+        int[] moves = new int[Board.MAX_MOVES];
+        for (int i = 0; i < plies && b.getWinner() == null; i++) {
+            int n = b.generateMoves(moves);
+            b.makeMove(n == 0 ? Move.PASS_MOVE : moves[rnd.nextInt(n)]);
+        }
+        return b;
+    }
+
+    @Test
+    public void testAlphaBetaMatchesMinimax() {
+        for (int seed = 0; seed < 4; seed++) {
+            Board b = randomBoard(seed, 12);
+            for (int depth = 1; depth <= 3; depth++) {
+                Search search = new Search(b, depth);
+                search.findMove();
+                assertEquals("seed " + seed + " depth " + depth,
+                        minimax(new Board(b), depth, 0), search.bestScore());
+            }
+        }
+    }
+
+    @Test
+    public void testFindsWin() {
+        Board b = new Board();
+        b.setContent('a', '7', EMPTY);
+        b.setContent('g', '1', EMPTY);
+        b.setContent('a', '1', EMPTY);
+        b.setContent('g', '7', EMPTY);
+        b.setContent('d', '4', RED);
+        b.setContent('f', '6', BLUE);
+        Search search = new Search(b, 3);
+        Move best = Move.unpack(search.findMove());
+        assertTrue(search.bestScore() >= Search.WIN - 1);
+        Board after = new Board(b);
+        after.createMove(best);
+        assertEquals(RED, after.getWinner());
+        assertEquals(3, search.completedDepth());
+    }
+
+    @Test
+    public void testLeavesBoardAlone() {
+        Board b = randomBoard(7, 10);
+        String before = b.toString();
+        long key = b.key();
+        new Search(b, 3).findMove();
+        assertEquals(before, b.toString());
+        assertEquals(key, b.key());
+    }
+
+    @Test
+    public void testTimeLimit() {
+        Board b = randomBoard(3, 8);
+        Search search = new Search(b, Search.MAX_DEPTH);
+        search.setTimeLimit(200);
+        long start = System.currentTimeMillis();
+        int move = search.findMove();
+        long elapsed = System.currentTimeMillis() - start;
+        assertTrue("took " + elapsed + " ms", elapsed < 1000);
+        assertTrue(search.completedDepth() >= 1);
+        assertTrue(search.completedDepth() < Search.MAX_DEPTH);
+        assertTrue(b.moveLegal(Move.unpack(move)));
+    }
+
+    @Test
+    public void testStopFromAnotherThread() throws InterruptedException {
+        Board b = randomBoard(5, 8);
+        Search search = new Search(b, Search.MAX_DEPTH);
+        int[] found = new int[1];
+        Thread thinker = new Thread(() -> found[0] = search.findMove());
+        thinker.start();
+        Thread.sleep(100);
+        search.stop();
+        thinker.join(1000);
+        assertFalse(thinker.isAlive());
+        assertTrue(b.moveLegal(Move.unpack(found[0])));
+    }
+
+    @Test
+    public void testLazySMPAgreesWithSearch() {
+        for (int seed = 10; seed < 13; seed++) {
+            Board b = randomBoard(seed, 10);
+            Search single = new Search(b, 4);
+            single.findMove();
+            LazySMP parallel =
+                new LazySMP(b, 4, new TranspositionTable(4), 4);
+            int move = parallel.findMove();
+            assertEquals(single.bestScore(), parallel.bestScore());
+            assertEquals(4, parallel.completedDepth());
+            assertTrue(b.moveLegal(Move.unpack(move)));
+        }
+    }
+
+    @Test
+    public void testForkJoinAgreesWithSearch() {
+        for (int seed = 20; seed < 23; seed++) {
+            Board b = randomBoard(seed, 10);
+            Search single = new Search(b, 5);
+            single.findMove();
+            ForkJoinSearch parallel =
+                new ForkJoinSearch(b, 5, new TranspositionTable(4), 4);
+            int move = parallel.findMove();
+            assertEquals(single.bestScore(), parallel.bestScore());
+            assertEquals(5, parallel.completedDepth());
+            assertTrue(b.moveLegal(Move.unpack(move)));
+        }
+    }
+
+    @Test
+    public void testOrderingCutsNodes() {
+        long ordered = 0, plain = 0;
+        for (int seed = 30; seed < 34; seed++) {
+            Board b = randomBoard(seed, 8);
+            Search withOrdering = new Search(b, 5);
+            withOrdering.findMove();
+            Search without = new Search(b, 5);
+            without.setOrdering(false);
+            without.findMove();
+            assertEquals(without.bestScore(), withOrdering.bestScore());
+            assertTrue(withOrdering.firstMoveCutoffRate() > 0.5);
+            ordered += withOrdering.nodes();
+            plain += without.nodes();
+        }
+        assertTrue(ordered + " >= " + plain, ordered < plain);
+    }
+
+    @Test
+    public void testWindowsKeepScore() {
+        for (int seed = 40; seed < 44; seed++) {
+            Board b = randomBoard(seed, 8);
+            Search plain = new Search(b, 5);
+            plain.setPVS(false);
+            plain.setAspiration(false);
+            plain.setReductions(false);
+            plain.findMove();
+            Search windowed = new Search(b, 5);
+            windowed.setReductions(false);
+            windowed.findMove();
+            assertEquals(plain.bestScore(), windowed.bestScore());
+            Search reduced = new Search(b, 5);
+            int move = reduced.findMove();
+            assertTrue(b.moveLegal(Move.unpack(move)));
+            assertEquals(5, reduced.completedDepth());
+        }
+    }
+
+    @Test
+    public void testMirrorsKeepScoreAndCutNodes() {
+        Board b = new Board();
+        b.setBlock('b', '2');
+        for (Board root : new Board[] { new Board(), b }) {
+            Search full = new Search(root, 5);
+            full.setMirrors(false);
+            full.findMove();
+            Search mirrored = new Search(root, 5);
+            int move = mirrored.findMove();
+            assertTrue(root.moveLegal(Move.unpack(move)));
+            assertEquals(full.bestScore(), mirrored.bestScore());
+            assertTrue(mirrored.nodes() < full.nodes());
+        }
+    }
+}
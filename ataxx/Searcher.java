@@ -0,0 +1,36 @@
+package ataxx;
+
+/** A way of searching for the best move from a position.  Each
+ *  Searcher is made for one position and searches a copy of it. */
+interface Searcher {
+
+    /** Return the best move found, packed as by Move.pack, or
+     *  Move.PASS_MOVE if the side to move has no move. */
+    int findMove();
+
+    /** Limit findMove to MILLIS milliseconds (0 for no limit). */
+    void setTimeLimit(long millis);
+
+    /** Make findMove return as soon as possible with the best move found
+     *  so far.  May be called from any thread. */
+    void stop();
+
+    /** Return the score, for the side to move, of the last move found. */
+    int bestScore();
+
+    /** Return the deepest depth fully searched by the last findMove. */
+    int completedDepth();
+
+    /** Return the number of positions visited by the last findMove. */
+    long nodes();
+
+    /** Make findMove take the results of positions in TABLEBASE from it
+     *  rather than searching them, if it can.  By default, it cannot. */
+    default void setTablebase(Tablebase tablebase) {
+    }
+
+    /** Make findMove value the positions it does not search further by
+     *  EVALUATOR.  By default, it uses its own evaluation. */
+    default void setEvaluator(Evaluator evaluator) {
+    }
+}
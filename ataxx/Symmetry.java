@@ -0,0 +1,261 @@
+package ataxx;
+
+import static ataxx.PieceState.*;
+
+/** The eight symmetries of the board (the dihedral group of the square),
+ *  applied to bit masks and packed moves.  A symmetry is numbered
+ *  0 .. COUNT-1: the board is first reflected in the a1-g7 diagonal if
+ *  bit 2 of its number is set, then left to right if bit 0 is, then top
+ *  to bottom if bit 1 is.  Symmetry 0 is the identity.  Each reflection
+ *  is a handful of shifts and masks of the whole board, one per file,
+ *  rank or diagonal.
+ *
+ *  Ataxx is played the same on a mirror image of the board, so mirrored
+ *  positions have the same value and corresponding best moves.  The
+ *  canonical form of a position is the image under one of the symmetries
+ *  chosen from the position alone, and is the same for all its mirror
+ *  images; the colours and the side to move are left as they are. */
+class Symmetry {
+
+    /** Return the image of MASK under symmetry T. */
+    static long transform(long mask, int t) {
+        if ((t & 4) != 0) {
+            mask = transpose(mask);
+        }
+        if ((t & 1) != 0) {
+            mask = flipFiles(mask);
+        }
+        if ((t & 2) != 0) {
+            mask = flipRanks(mask);
+        }
+        return mask;
+    }
+
+    /** Return the bit number of the image of square number BIT under
+     *  symmetry T. */
+    static int square(int bit, int t) {
+        return SQUARES[t][bit];
+    }
+
+    /** Return the image of the packed MOVE under symmetry T.  A pass is
+     *  its own image. */
+    static int move(int move, int t) {
+        if (move == Move.PASS_MOVE) {
+            return move;
+        }
+        return Move.pack(SQUARES[t][Move.fromBit(move)],
+                         SQUARES[t][Move.toBit(move)]);
+    }
+
+    /** Return the symmetry that undoes symmetry T. */
+    static int inverse(int t) {
+        return INVERSES[t];
+    }
+
+    /** Return the symmetry that takes the position on BOARD to its
+     *  canonical form: the one whose images of the blocked squares, then
+     *  of the red pieces, then of the blue pieces, are least as
+     *  numbers. */
+    static int canonical(Board board) {
+        long red = board.pieces(RED), blue = board.pieces(BLUE),
+            blocked = board.pieces(BLOCKED);
+        int best = 0;
+        long bestBlocked = blocked, bestRed = red, bestBlue = blue;
+        for (int t = 1; t < COUNT; t += 1) {
+            long b = transform(blocked, t);
+            if (b > bestBlocked) {
+                continue;
+            }
+            long r = transform(red, t);
+            if (b == bestBlocked && r > bestRed) {
+                continue;
+            }
+            long u = transform(blue, t);
+            if (b == bestBlocked && r == bestRed && u >= bestBlue) {
+                continue;
+            }
+            best = t;
+            bestBlocked = b;
+            bestRed = r;
+            bestBlue = u;
+        }
+        return best;
+    }
+
+    /** Return the set of symmetries that leave the position on BOARD
+     *  unchanged, as a bit mask in which bit t stands for symmetry t.
+     *  Bit 0 (the identity) is always set. */
+    static int symmetries(Board board) {
+        long red = board.pieces(RED), blue = board.pieces(BLUE),
+            blocked = board.pieces(BLOCKED);
+        int result = 1;
+        for (int t = 1; t < COUNT; t += 1) {
+            if (transform(blocked, t) == blocked && transform(red, t) == red
+                && transform(blue, t) == blue) {
+                result |= 1 << t;
+            }
+        }
+        return result;
+    }
+
+    /** Remove from MOVES[0 .. N-1], moves from the position on BOARD
+     *  without passes, every move whose image under a symmetry of the
+     *  position is an earlier move (or, for clones, a clone to the same
+     *  square), keeping the order of the others, and return the number
+     *  left.  The moves removed lead to mirror images of positions that
+     *  the moves kept lead to. */
+    static int distinctMoves(Board board, int[] moves, int n) {
+        int symmetries = symmetries(board) & ~1;
+        if (symmetries == 0) {
+            return n;
+        }
+        int kept = 0;
+        for (int i = 0; i < n; i += 1) {
+            int move = moves[i];
+            boolean duplicate = false;
+            for (int s = symmetries; s != 0 && !duplicate; s &= s - 1) {
+                int image = move(move, Integer.numberOfTrailingZeros(s));
+                for (int j = 0; j < kept && !duplicate; j += 1) {
+                    duplicate = image == moves[j]
+                        || (Move.isClone(image) && Move.isClone(moves[j])
+                            && Move.toBit(image) == Move.toBit(moves[j]));
+                }
+            }
+            if (!duplicate) {
+                moves[kept++] = move;
+            }
+        }
+        return kept;
+    }
+
+    /** Return the move among those that distinctMoves keeps of the moves
+     *  generated on BOARD that leads to the same position as MOVE, a move
+     *  other than a pass from that position, or to a mirror image of it
+     *  under a symmetry of the position. */
+    static int representative(Board board, int move) {
+        int[] moves = new int[Board.MAX_MOVES];
+        int n = distinctMoves(board, moves, board.generateMoves(moves, true));
+        int symmetries = symmetries(board);
+        for (int i = 0; i < n; i += 1) {
+            for (int s = symmetries; s != 0; s &= s - 1) {
+                int image = move(move, Integer.numberOfTrailingZeros(s));
+                if (image == moves[i]
+                    || (Move.isClone(image) && Move.isClone(moves[i])
+                        && Move.toBit(image) == Move.toBit(moves[i]))) {
+                    return moves[i];
+                }
+            }
+        }
+        return move;
+    }
+
+    /** Return a copy of BOARD, with the same side to move and jump
+     *  count, holding the image of its position under symmetry T. */
+    static Board image(Board board, int t) {
+        Board result = new Board(board);
+        long red = transform(board.pieces(RED), t),
+            blue = transform(board.pieces(BLUE), t),
+            blocked = transform(board.pieces(BLOCKED), t);
+        for (int bit = 0; bit < SIDE * SIDE; bit += 1) {
+            long mask = 1L << bit;
+            PieceState v = (red & mask) != 0 ? RED
+                : (blue & mask) != 0 ? BLUE
+                : (blocked & mask) != 0 ? BLOCKED : EMPTY;
+            result.setContent((char) ('a' + bit % SIDE),
+                              (char) ('1' + bit / SIDE), v);
+        }
+        return result;
+    }
+
+    /** Return the Board.key() of the image under symmetry T of the
+     *  position on BOARD. */
+    static long key(Board board, int t) {
+        if (t == 0) {
+            return board.key();
+        }
+        return board.key(transform(board.pieces(RED), t),
+                         transform(board.pieces(BLUE), t),
+                         transform(board.pieces(BLOCKED), t));
+    }
+
+    /** Return the Board.key() of the canonical form of the position on
+     *  BOARD, which is the same for all its mirror images. */
+    static long canonicalKey(Board board) {
+        return key(board, canonical(board));
+    }
+
+    /** Return the mirror image of MASK in the a1-g7 diagonal. */
+    private static long transpose(long mask) {
+        long result = mask & DIAGONALS[SIDE - 1];
+        for (int d = 1; d < SIDE; d += 1) {
+            result |= (mask & DIAGONALS[SIDE - 1 + d]) << (SIDE - 1) * d;
+            result |= (mask & DIAGONALS[SIDE - 1 - d]) >>> (SIDE - 1) * d;
+        }
+        return result;
+    }
+
+    /** Return the mirror image of MASK with files a and g exchanged. */
+    private static long flipFiles(long mask) {
+        long result = mask & FILES[SIDE / 2];
+        for (int c = 0; c < SIDE / 2; c += 1) {
+            int shift = SIDE - 1 - 2 * c;
+            result |= (mask & FILES[c]) << shift;
+            result |= (mask & FILES[SIDE - 1 - c]) >>> shift;
+        }
+        return result;
+    }
+
+    /** Return the mirror image of MASK with ranks 1 and 7 exchanged. */
+    private static long flipRanks(long mask) {
+        long result = mask & RANKS[SIDE / 2];
+        for (int r = 0; r < SIDE / 2; r += 1) {
+            int shift = SIDE * (SIDE - 1 - 2 * r);
+            result |= (mask & RANKS[r]) << shift;
+            result |= (mask & RANKS[SIDE - 1 - r]) >>> shift;
+        }
+        return result;
+    }
+
+    /** Number of symmetries. */
+    static final int COUNT = 8;
+
+    /** Length of a side of the board. */
+    private static final int SIDE = Board.ONESIDE;
+
+    /** Masks of each file, each rank, and each diagonal parallel to
+     *  a1-g7, the last indexed by file - rank + SIDE - 1. */
+    private static final long[] FILES = new long[SIDE], RANKS = new long[SIDE],
+        DIAGONALS = new long[2 * SIDE - 1];
+
+    /** SQUARES[t][b] is the bit number of the image of square number b
+     *  under symmetry t. */
+    private static final int[][] SQUARES = new int[COUNT][SIDE * SIDE];
+
+    /** INVERSES[t] is the symmetry that undoes symmetry t. */
+    private static final int[] INVERSES = new int[COUNT];
+
+    static {
+        for (int r = 0; r < SIDE; r += 1) {
+            for (int c = 0; c < SIDE; c += 1) {
+                long bit = 1L << (r * SIDE + c);
+                FILES[c] |= bit;
+                RANKS[r] |= bit;
+                DIAGONALS[c - r + SIDE - 1] |= bit;
+            }
+        }
+        for (int t = 0; t < COUNT; t += 1) {
+            for (int b = 0; b < SIDE * SIDE; b += 1) {
+                SQUARES[t][b] =
+                    Long.numberOfTrailingZeros(transform(1L << b, t));
+            }
+        }
+        for (int t = 0; t < COUNT; t += 1) {
+            for (int u = 0; u < COUNT; u += 1) {
+                if (SQUARES[u][SQUARES[t][1]] == 1
+                    && SQUARES[u][SQUARES[t][SIDE]] == SIDE) {
+                    INVERSES[t] = u;
+                }
+            }
+        }
+    }
+}
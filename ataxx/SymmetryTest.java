@@ -0,0 +1,136 @@
+package ataxx;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+import static ataxx.PieceState.*;
+
+public class SymmetryTest {
+
+    /** Return the bit number of square CR. */
+    private static int bit(String cr) {
+        return (cr.charAt(1) - '1') * 7 + (cr.charAt(0) - 'a');
+    }
+
+    /** Return a board holding the image of the position on B under
+     *  symmetry T, with red to move. */
+    static Board mirror(Board b, int t) {
+        Board result = new Board();
+        for (int sq = 0; sq < 49; sq++) {
+            int image = Symmetry.square(sq, t);
+            result.setContent((char) ('a' + image % 7),
+                              (char) ('1' + image / 7),
+                              b.getContent((char) ('a' + sq % 7),
+                                           (char) ('1' + sq / 7)));
+        }
+        return result;
+    }
+
+    /** A position with no symmetry, red to move. */
+    static Board lopsided() {
+        Board b = new Board();
+        b.setBlock('b', '3');
+        b.makeMove(Move.pack(bit("a7"), bit("b6")));
+        b.makeMove(Move.pack(bit("a1"), bit("c1")));
+        b.makeMove(Move.pack(bit("b6"), bit("d6")));
+        b.makeMove(Move.pack(bit("g7"), bit("f7")));
+        return b;
+    }
+
+    @Test
+    public void testSquareImages() {
+        assertEquals(bit("g1"), Symmetry.square(bit("a1"), 1));
+        assertEquals(bit("a7"), Symmetry.square(bit("a1"), 2));
+        assertEquals(bit("g7"), Symmetry.square(bit("a1"), 3));
+        assertEquals(bit("a2"), Symmetry.square(bit("b1"), 4));
+        assertEquals(bit("c4"), Symmetry.square(bit("d3"), 4));
+        assertEquals(bit("d4"), Symmetry.square(bit("d4"), 7));
+        assertEquals(Move.pack(bit("g7"), bit("f6")),
+                     Symmetry.move(Move.pack(bit("a7"), bit("b6")), 1));
+        assertEquals(Move.PASS_MOVE, Symmetry.move(Move.PASS_MOVE, 5));
+    }
+
+    @Test
+    public void testInversesAndDistinctImages() {
+        long mask = 0x1234_5678_9abcL & Board.ALL_SQUARES;
+        long[] images = new long[Symmetry.COUNT];
+        for (int t = 0; t < Symmetry.COUNT; t++) {
+            images[t] = Symmetry.transform(mask, t);
+            assertEquals(Long.bitCount(mask), Long.bitCount(images[t]));
+            assertEquals(mask,
+                    Symmetry.transform(images[t], Symmetry.inverse(t)));
+            for (int u = 0; u < t; u++) {
+                assertNotEquals(images[u], images[t]);
+            }
+        }
+    }
+
+    @Test
+    public void testMirrorsShareCanonicalKey() {
+        Board b = lopsided();
+        assertEquals(b.key(), Symmetry.key(b, 0));
+        long canonical = Symmetry.canonicalKey(b);
+        for (int t = 0; t < Symmetry.COUNT; t++) {
+            Board m = mirror(b, t);
+            assertEquals(RED, m.nextMove());
+            assertEquals(m.key(), Symmetry.key(b, t));
+            assertEquals(canonical, Symmetry.canonicalKey(m));
+        }
+        assertNotEquals(canonical, Symmetry.canonicalKey(new Board()));
+    }
+
+    @Test
+    public void testDistinctMoves() {
+        Board b = new Board();
+        assertEquals(0x99, Symmetry.symmetries(b));
+        int[] moves = new int[Board.MAX_MOVES];
+        int n = b.generateMoves(moves, true);
+        assertEquals(16, n);
+        assertEquals(5, Symmetry.distinctMoves(b, moves, n));
+        Board lopsided = lopsided();
+        assertEquals(1, Symmetry.symmetries(lopsided));
+        n = lopsided.generateMoves(moves, true);
+        assertEquals(n, Symmetry.distinctMoves(lopsided, moves, n));
+    }
+
+    @Test
+    public void testRepresentatives() {
+        Board b = new Board();
+        int[] moves = new int[Board.MAX_MOVES];
+        int n = b.generateMoves(moves, true);
+        HashSet<Integer> kept = new HashSet<>();
+        for (int i = 0; i < n; i++) {
+            int rep = Symmetry.representative(b, moves[i]);
+            kept.add(rep);
+            for (int t = 0; t < Symmetry.COUNT; t++) {
+                if ((Symmetry.symmetries(b) >> t & 1) != 0) {
+                    assertEquals(rep, Symmetry.representative(b,
+                                     Symmetry.move(moves[i], t)));
+                }
+            }
+        }
+        assertEquals(5, kept.size());
+        Board lopsided = lopsided();
+        n = lopsided.generateMoves(moves, true);
+        for (int i = 0; i < n; i++) {
+            assertEquals(moves[i],
+                         Symmetry.representative(lopsided, moves[i]));
+        }
+    }
+
+    @Test
+    public void testImage() {
+        Board b = lopsided();
+        b.makeMove(Move.pack(bit("d6"), bit("d4")));
+        assertEquals(BLUE, b.nextMove());
+        assertEquals(1, b.getConsecJumpNums());
+        for (int t = 0; t < Symmetry.COUNT; t++) {
+            Board image = Symmetry.image(b, t);
+            assertEquals(Symmetry.key(b, t), image.key());
+            assertEquals(b.nextMove(), image.nextMove());
+            assertEquals(b.getConsecJumpNums(), image.getConsecJumpNums());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static ataxx.GameException.error;
+
+/** A read-only table of solved endgame positions, kept in a file and
+ *  mapped into memory, so that every process probing the same file
+ *  shares one copy of it in the operating system's page cache.
+ *
+ *  The file is a HEADER_BYTES-byte header (MAGIC, VERSION, the largest
+ *  number of empty squares of any position in it, and the number of
+ *  slots, a power of two) followed by the slots, SLOT_BYTES each: the
+ *  position's Board.key() (0 for an unused slot), its best move (packed,
+ *  as a short) and its exact final piece differential for the side to
+ *  move (a byte).  A position's slot is found from its key by linear
+ *  probing, and the table is at most half full, so a probe reads one or
+ *  two slots. */
+class Tablebase {
+
+    /** A Tablebase of the positions in FILE.  A file whose header is
+     *  out of range or whose table is more than half full is rejected,
+     *  since probing it could be slow or, with no empty slot, endless. */
+    Tablebase(Path file) {
+        try (FileChannel channel = FileChannel.open(file,
+                                                    StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                 channel.size());
+        } catch (IOException excp) {
+            throw error("cannot read tablebase %s: %s", file,
+                        excp.getMessage());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC
+            || buffer.getInt(4) != VERSION) {
+            throw error("%s is not a tablebase", file);
+        }
+        maxEmpties = buffer.getInt(8);
+        int slots = buffer.getInt(12);
+        if (maxEmpties < 0 || maxEmpties > Board.ONESIDE * Board.ONESIDE
+            || slots <= 0 || Integer.bitCount(slots) != 1
+            || buffer.capacity() != HEADER_BYTES + (long) slots * SLOT_BYTES) {
+            throw error("tablebase %s is damaged", file);
+        }
+        int used = 0;
+        for (int i = 0; i < slots; i += 1) {
+            if (buffer.getLong(HEADER_BYTES + i * SLOT_BYTES) != 0) {
+                used += 1;
+            }
+        }
+        if (used > slots / 2) {
+            throw error("tablebase %s is damaged", file);
+        }
+        mask = slots - 1;
+    }
+
+    /** Return the entry for the position on BOARD (decode it with move
+     *  and score), or NONE if it is not in the table. */
+    int probe(Board board) {
+        if (Long.bitCount(board.emptySquares()) > maxEmpties) {
+            return NONE;
+        }
+        return probe(board.key());
+    }
+
+    /** Return the entry for the position with Board.key() KEY, or NONE
+     *  if there is none.  At most every slot is read once. */
+    int probe(long key) {
+        if (key == 0) {
+            return NONE;
+        }
+        for (int i = slot(key, mask), n = 0; n <= mask;
+             i = (i + 1) & mask, n += 1) {
+            int offset = HEADER_BYTES + i * SLOT_BYTES;
+            long stored = buffer.getLong(offset);
+            if (stored == key) {
+                return (buffer.getShort(offset + 8) & Move.PASS_MOVE)
+                    | (buffer.get(offset + 10) << 16);
+            } else if (stored == 0) {
+                return NONE;
+            }
+        }
+        return NONE;
+    }
+
+    /** Return the largest number of empty squares in my positions. */
+    int maxEmpties() {
+        return maxEmpties;
+    }
+
+    /** Return the best move (packed) in entry ENTRY. */
+    static int move(int entry) {
+        return entry & Move.PASS_MOVE;
+    }
+
+    /** Return the final piece differential, for the side to move, in
+     *  entry ENTRY. */
+    static int score(int entry) {
+        return entry >> 16;
+    }
+
+    /** Write a tablebase to FILE holding, for each i < N, the position
+     *  with key KEYS[i], best move MOVES[i] (packed) and final piece
+     *  differential SCORES[i], where no position has more than
+     *  MAXEMPTIES empty squares. */
+    static void write(Path file, int maxEmpties, long[] keys, int[] moves,
+                      int[] scores, int n) {
+        int slots = Integer.highestOneBit(Math.max(2 * n, 1) * 2 - 1);
+        ByteBuffer out =
+            ByteBuffer.allocate(HEADER_BYTES + slots * SLOT_BYTES);
+        out.order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, maxEmpties)
+            .putInt(12, slots);
+        int mask = slots - 1;
+        for (int k = 0; k < n; k += 1) {
+            if (keys[k] == 0) {
+                continue;
+            }
+            int i = slot(keys[k], mask);
+            while (out.getLong(HEADER_BYTES + i * SLOT_BYTES) != 0) {
+                i = (i + 1) & mask;
+            }
+            int offset = HEADER_BYTES + i * SLOT_BYTES;
+            out.putLong(offset, keys[k]);
+            out.putShort(offset + 8, (short) moves[k]);
+            out.put(offset + 10, (byte) scores[k]);
+        }
+        try (FileChannel channel = FileChannel.open(file,
+                 StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                 StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+        } catch (IOException excp) {
+            throw error("cannot write tablebase %s: %s", file,
+                        excp.getMessage());
+        }
+    }
+
+    /** Return the first slot to try for KEY in a table of MASK + 1
+     *  slots. */
+    private static int slot(long key, int mask) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    /** Returned by probe for a position not in the table. */
+    static final int NONE = Integer.MIN_VALUE;
+
+    /** File identification ("ATBL") and format version. */
+    private static final int MAGIC = 0x4c425441, VERSION = 1;
+
+    /** Sizes of the header and of each slot in bytes. */
+    private static final int HEADER_BYTES = 16, SLOT_BYTES = 12;
+
+    /** The mapped file. */
+    private final MappedByteBuffer buffer;
+
+    /** Largest number of empty squares in my positions. */
+    private final int maxEmpties;
+
+    /** Number of slots - 1. */
+    private final int mask;
+}
@@ -0,0 +1,165 @@
+package ataxx;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static ataxx.GameException.error;
+
+/** Builds Tablebase files.  Positions with at most a given number of
+ *  empty squares are gathered from self-play games played out from a
+ *  starting position by Searches of a fixed depth, then solved exactly
+ *  by EndgameSolvers on several threads, and those solved within the
+ *  time allowed for each are written out.
+ *
+ *  Every colouring of the filled squares of the board is a possible
+ *  position, so that even with a few empty squares there are far too
+ *  many to enumerate, and jumps connect the positions with a given
+ *  number of empty squares to one another, so that they cannot be
+ *  solved layer by layer from the full board back.  The positions are
+ *  therefore chosen by play, and each solved forwards.  The games are
+ *  searched, with a few random moves so that they differ, because the
+ *  endgames of random play are not ones that searches reach, and a
+ *  table of them would seldom be probed with success. */
+class TablebaseGenerator {
+
+    /** A generator of tablebases of positions with at most MAXEMPTIES
+     *  empty squares, gathered from games whose moves are found by
+     *  searches DEPTH plies deep, playing and solving on THREADS threads
+     *  and allowing each position MILLIS milliseconds. */
+    TablebaseGenerator(int maxEmpties, int depth, int threads, long millis) {
+        this.maxEmpties = maxEmpties;
+        this.depth = Math.max(depth, 1);
+        this.threads = Math.max(threads, 1);
+        this.millis = millis;
+    }
+
+    /** Return the distinct unfinished positions with at most maxEmpties
+     *  empty squares that arise in GAMES self-play games from START, whose
+     *  random moves are chosen with random numbers from SEED.  The
+     *  positions are in the order of the games, so that they depend on
+     *  SEED alone. */
+    List<Board> collect(Board start, int games, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        HashSet<Long> seen = new HashSet<>();
+        List<Board> positions = new ArrayList<>();
+        try {
+            List<Future<List<Board>>> results = new ArrayList<>();
+            for (int g = 0; g < games; g += 1) {
+                SplittableRandom rnd = random.split();
+                results.add(pool.submit(() -> playGame(start, rnd)));
+            }
+            for (Future<List<Board>> result : results) {
+                for (Board position : result.get()) {
+                    if (seen.add(position.key())) {
+                        positions.add(position);
+                    }
+                }
+            }
+        } catch (InterruptedException | ExecutionException excp) {
+            throw error("self-play failed: %s", excp);
+        } finally {
+            pool.shutdown();
+        }
+        return positions;
+    }
+
+    /** Play one game from START, choosing random moves with RANDOM, and
+     *  return its unfinished positions with at most maxEmpties empty
+     *  squares.  The first RANDOM_PLIES moves, and one in RANDOM_MOVE_ODDS
+     *  after that, are random. */
+    private List<Board> playGame(Board start, SplittableRandom random) {
+        Board board = new Board(start);
+        TranspositionTable table = new TranspositionTable(HASH_SIZE);
+        int[] moves = new int[Board.MAX_MOVES];
+        List<Board> positions = new ArrayList<>();
+        for (int ply = 0; board.getWinner() == null; ply += 1) {
+            if (Long.bitCount(board.emptySquares()) <= maxEmpties) {
+                positions.add(new Board(board));
+            }
+            int n = board.generateMoves(moves, true);
+            if (n == 0) {
+                board.makeMove(Move.PASS_MOVE);
+                continue;
+            }
+            int move;
+            if (ply < RANDOM_PLIES || random.nextInt(RANDOM_MOVE_ODDS) == 0) {
+                move = moves[random.nextInt(n)];
+            } else {
+                move = new Search(board, depth, table).findMove();
+            }
+            board.makeMove(move);
+        }
+        return positions;
+    }
+
+    /** Solve POSITIONS and write those solved to FILE as a Tablebase.
+     *  Return the number written. */
+    int generate(List<Board> positions, Path file) {
+        int n = positions.size();
+        long[] keys = new long[n];
+        int[] moves = new int[n], scores = new int[n];
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        int solved = 0;
+        try {
+            List<Future<int[]>> results = new ArrayList<>();
+            for (Board position : positions) {
+                results.add(pool.submit(() -> solve(position)));
+            }
+            for (int i = 0; i < n; i += 1) {
+                int[] result = results.get(i).get();
+                if (result != null) {
+                    keys[solved] = positions.get(i).key();
+                    moves[solved] = result[0];
+                    scores[solved] = result[1];
+                    solved += 1;
+                }
+            }
+        } catch (InterruptedException | ExecutionException excp) {
+            throw error("tablebase generation failed: %s", excp);
+        } finally {
+            pool.shutdown();
+        }
+        Tablebase.write(file, maxEmpties, keys, moves, scores, solved);
+        return solved;
+    }
+
+    /** Return the best move (packed) and final piece differential of
+     *  POSITION, or null if it could not be solved in the time
+     *  allowed. */
+    private int[] solve(Board position) {
+        EndgameSolver solver = new EndgameSolver(position);
+        solver.setTimeLimit(millis);
+        int move = solver.findMove();
+        return solver.solved() ? new int[] { move, solver.bestScore() }
+            : null;
+    }
+
+    /** Number of random moves at the start of each game. */
+    static final int RANDOM_PLIES = 4;
+
+    /** After RANDOM_PLIES, one move in this many is random. */
+    private static final int RANDOM_MOVE_ODDS = 10;
+
+    /** Size in megabytes of the table of each game's searches. */
+    private static final int HASH_SIZE = 4;
+
+    /** Largest number of empty squares in a position to be solved. */
+    private final int maxEmpties;
+
+    /** Search depth of the moves played. */
+    private final int depth;
+
+    /** Number of threads playing and solving. */
+    private final int threads;
+
+    /** Time allowed for each position, in milliseconds. */
+    private final long millis;
+}
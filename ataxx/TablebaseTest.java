@@ -0,0 +1,107 @@
+package ataxx;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TablebaseTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndProbe() throws IOException {
+        Path file = folder.newFile("small.tb").toPath();
+        long[] keys = new long[100];
+        int[] moves = new int[100], scores = new int[100];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = 0x9e3779b97f4a7c15L * (i + 1);
+            moves[i] = Move.pack(i % 49, (i + 1) % 49);
+            scores[i] = i % 99 - 49;
+        }
+        Tablebase.write(file, 6, keys, moves, scores, keys.length);
+        Tablebase tablebase = new Tablebase(file);
+        assertEquals(6, tablebase.maxEmpties());
+        for (int i = 0; i < keys.length; i++) {
+            int entry = tablebase.probe(keys[i]);
+            assertEquals(moves[i], Tablebase.move(entry));
+            assertEquals(scores[i], Tablebase.score(entry));
+        }
+        assertEquals(Tablebase.NONE, tablebase.probe(12345L));
+        assertEquals(Tablebase.NONE, tablebase.probe(new Board()));
+    }
+
+    @Test
+    public void testGeneratedEntryMatchesSolver() {
+        Path file = folder.getRoot().toPath().resolve("ring.tb");
+        Board b = EndgameSolverTest.ringBoard();
+        TablebaseGenerator generator = new TablebaseGenerator(4, 1, 2, 10000);
+        assertEquals(1, generator.generate(Collections.singletonList(b),
+                file));
+        int entry = new Tablebase(file).probe(b);
+        EndgameSolver solver = new EndgameSolver(b);
+        assertEquals(solver.findMove(), Tablebase.move(entry));
+        assertEquals(solver.bestScore(), Tablebase.score(entry));
+    }
+
+    @Test
+    public void testCollectIsRepeatable() {
+        TablebaseGenerator generator = new TablebaseGenerator(6, 1, 2, 100);
+        List<Board> positions = generator.collect(new Board(), 10, 7);
+        List<Board> again = generator.collect(new Board(), 10, 7);
+        assertFalse(positions.isEmpty());
+        assertEquals(positions.size(), again.size());
+        HashSet<Long> keys = new HashSet<>();
+        for (int i = 0; i < positions.size(); i++) {
+            Board b = positions.get(i);
+            assertTrue(Long.bitCount(b.emptySquares()) <= 6);
+            assertNull(b.getWinner());
+            assertTrue(keys.add(b.key()));
+            assertEquals(b.key(), again.get(i).key());
+        }
+    }
+
+    @Test(expected = GameException.class)
+    public void testRejectsFullTable() throws IOException {
+        Path file = folder.newFile("full.tb").toPath();
+        long[] keys = { 1, 2 };
+        Tablebase.write(file, 6, keys, new int[2], new int[2], 2);
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(
+            ByteOrder.LITTLE_ENDIAN);
+        int slots = buffer.getInt(12);
+        for (int i = 0; i < slots; i++) {
+            buffer.putLong(16 + 12 * i, i + 1);
+        }
+        Files.write(file, bytes);
+        new Tablebase(file);
+    }
+
+    @Test(expected = GameException.class)
+    public void testRejectsBadHeader() throws IOException {
+        Path file = folder.newFile("header.tb").toPath();
+        Tablebase.write(file, 6, new long[] { 1 }, new int[1], new int[1], 1);
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(8, 99);
+        Files.write(file, bytes);
+        new Tablebase(file);
+    }
+
+    @Test(expected = GameException.class)
+    public void testRejectsOtherFiles() throws IOException {
+        Path file = folder.newFile("junk.tb").toPath();
+        Files.write(file, new byte[64]);
+        new Tablebase(file);
+    }
+}
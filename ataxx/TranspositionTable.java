@@ -0,0 +1,104 @@
+package ataxx;
+
+import java.util.Arrays;
+
+/** A fixed-size table of search results indexed by Board.key(), which
+ *  may be shared by several searching threads without locking.
+ *
+ *  Each entry is two longs in one array: the position key XORed with
+ *  the entry's data, and the data itself (best move, depth, bound type
+ *  and score, packed).  A reader accepts an entry only if the two XOR
+ *  back to the key it is looking for, so an entry torn by two threads
+ *  writing it at once is simply seen as missing.  Nothing is allocated
+ *  after construction. */
+class TranspositionTable {
+
+    /** A table occupying about MEGABYTES megabytes (at least one
+     *  entry). */
+    TranspositionTable(int megabytes) {
+        long entries = Math.max(1, ((long) megabytes << 20) / ENTRY_BYTES);
+        int size = Integer.highestOneBit((int) Math.min(entries, 1 << 26));
+        table = new long[2 * size];
+        mask = size - 1;
+    }
+
+    /** Return the data stored for KEY (decode it with move, depth, bound
+     *  and score), or 0 if there is none. */
+    long probe(long key) {
+        int i = index(key);
+        long data = table[i + 1];
+        if ((table[i] ^ data) != key) {
+            return 0;
+        }
+        return data;
+    }
+
+    /** Record that the position with KEY, searched DEPTH plies, has score
+     *  SCORE, where BOUND says whether SCORE is EXACT, a LOWER bound or
+     *  an UPPER bound, and MOVE (packed) is the best move found.  An
+     *  entry for another position is always replaced, but one for KEY
+     *  itself only by a search at least as deep. */
+    void store(long key, int move, int depth, int bound, int score) {
+        int i = index(key);
+        long old = table[i + 1];
+        if ((table[i] ^ old) == key && depth(old) > depth) {
+            return;
+        }
+        long data = (score & 0xffffffffL)
+            | ((long) (move & Move.PASS_MOVE) << 32)
+            | ((long) Math.min(depth, MAX_DEPTH) << 44)
+            | ((long) bound << 52);
+        table[i] = key ^ data;
+        table[i + 1] = data;
+    }
+
+    /** Remove all entries. */
+    void clear() {
+        Arrays.fill(table, 0);
+    }
+
+    /** Return the number of entries. */
+    int size() {
+        return mask + 1;
+    }
+
+    /** Return the packed best move in entry DATA. */
+    static int move(long data) {
+        return (int) (data >>> 32) & Move.PASS_MOVE;
+    }
+
+    /** Return the search depth in entry DATA. */
+    static int depth(long data) {
+        return (int) (data >>> 44) & MAX_DEPTH;
+    }
+
+    /** Return the bound type (EXACT, LOWER or UPPER) in entry DATA. */
+    static int bound(long data) {
+        return (int) (data >>> 52) & EXACT;
+    }
+
+    /** Return the score in entry DATA. */
+    static int score(long data) {
+        return (int) data;
+    }
+
+    /** Return the index in table of the first long of KEY's entry. */
+    private int index(long key) {
+        return (int) ((key ^ (key >>> 32)) & mask) << 1;
+    }
+
+    /** Bound types.  All are non-zero, so no stored entry's data is 0. */
+    static final int LOWER = 1, UPPER = 2, EXACT = 3;
+
+    /** Largest depth that can be stored. */
+    private static final int MAX_DEPTH = 0xff;
+
+    /** Bytes per entry. */
+    private static final int ENTRY_BYTES = 16;
+
+    /** Entries, two longs each. */
+    private final long[] table;
+
+    /** Number of entries - 1; the number of entries is a power of 2. */
+    private final int mask;
+}
@@ -0,0 +1,59 @@
+package ataxx;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TranspositionTableTest {
+
+    @Test
+    public void testStoreAndProbe() {
+        TranspositionTable table = new TranspositionTable(1);
+        long key = new Board().key();
+        assertEquals(0L, table.probe(key));
+        int move = Move.move("a7-b6").packed();
+        table.store(key, move, 7, TranspositionTable.LOWER, -1234);
+        long entry = table.probe(key);
+        assertEquals(move, TranspositionTable.move(entry));
+        assertEquals(7, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+        assertEquals(-1234, TranspositionTable.score(entry));
+        assertEquals(0L, table.probe(key ^ 1));
+    }
+
+    @Test
+    public void testReplacement() {
+        TranspositionTable table = new TranspositionTable(1);
+        long key = 0x123456789abcdefL;
+        table.store(key, Move.PASS_MOVE, 5, TranspositionTable.EXACT, 10);
+        table.store(key, Move.PASS_MOVE, 3, TranspositionTable.EXACT, 20);
+        assertEquals(10, TranspositionTable.score(table.probe(key)));
+        long other = key + ((long) table.size() << 1);
+        table.store(other, Move.PASS_MOVE, 1, TranspositionTable.UPPER, 30);
+        assertEquals(0L, table.probe(key));
+        assertEquals(30, TranspositionTable.score(table.probe(other)));
+        table.clear();
+        assertEquals(0L, table.probe(other));
+    }
+
+    @Test
+    public void testSize() {
+        assertEquals(1 << 16, new TranspositionTable(1).size());
+        assertEquals(1 << 20, new TranspositionTable(16).size());
+    }
+
+    @Test
+    public void testSharedTableKeepsScores() {
+        TranspositionTable table = new TranspositionTable(1);
+        for (int seed = 0; seed < 3; seed++) {
+            Board b = SearchTest.randomBoard(seed, 14);
+            Search fresh = new Search(b, 3);
+            fresh.findMove();
+            Search shared = new Search(b, 3, table);
+            shared.findMove();
+            assertEquals(fresh.bestScore(), shared.bestScore());
+            shared.findMove();
+            assertEquals(fresh.bestScore(), shared.bestScore());
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static ataxx.GameException.error;
+import static ataxx.PieceState.*;
+
+/** Fits the weights of a WeightedEvaluator to the outcomes of games, in
+ *  the manner of Texel tuning.  Positions are gathered from self-play,
+ *  each with the features (see WeightedEvaluator) of the position and of
+ *  the move played from it, and the result of the game for its side to
+ *  move.  A value v then predicts that result as the probability
+ *  1 / (1 + exp(-k v)) of winning, with draws counting half, and the
+ *  weights are chosen to make the mean squared error of these
+ *  predictions (the loss) as small as possible.  The weights of
+ *  positions and those of moves are fitted separately, each with its
+ *  own scale k, fitted first to the starting weights.  The search is a
+ *  simple local one, changing one weight by 1 at a time while that
+ *  lowers the loss, and each loss is computed on several threads. */
+class Tuner {
+
+    /** A tuner whose games are played by searches DEPTH plies deep, and
+     *  that plays and computes losses on THREADS threads. */
+    Tuner(int depth, int threads) {
+        this.depth = Math.max(depth, 1);
+        this.threads = Math.max(threads, 1);
+    }
+
+    /** Play GAMES games from START, choosing random moves with random
+     *  numbers from SEED, and record their positions.  The positions are
+     *  recorded in the order of the games, so that they, and the weights
+     *  fitted to them, depend on SEED alone. */
+    void collect(Board start, int games, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<int[]>>> results = new ArrayList<>();
+            for (int g = 0; g < games; g += 1) {
+                SplittableRandom rnd = random.split();
+                results.add(pool.submit(() -> playGame(start, rnd)));
+            }
+            for (Future<List<int[]>> result : results) {
+                samples.addAll(result.get());
+            }
+        } catch (InterruptedException | ExecutionException excp) {
+            throw error("self-play failed: %s", excp);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Play one game from START, choosing random moves with RANDOM, and
+     *  return its positions, as recorded in samples.  The first
+     *  RANDOM_PLIES moves, and one in RANDOM_MOVE_ODDS after that, are
+     *  random, so that games differ and the moves recorded are not all
+     *  good ones. */
+    private List<int[]> playGame(Board start, SplittableRandom random) {
+        Board board = new Board(start);
+        TranspositionTable table = new TranspositionTable(HASH_SIZE);
+        int[] moves = new int[Board.MAX_MOVES];
+        List<int[]> played = new ArrayList<>();
+        for (int ply = 0; board.getWinner() == null; ply += 1) {
+            int n = board.generateMoves(moves, true);
+            if (n == 0) {
+                board.makeMove(Move.PASS_MOVE);
+                continue;
+            }
+            int move;
+            if (ply < RANDOM_PLIES || random.nextInt(RANDOM_MOVE_ODDS) == 0) {
+                move = moves[random.nextInt(n)];
+            } else {
+                move = new Search(board, depth, table).findMove();
+            }
+            int[] sample = new int[WeightedEvaluator.FEATURES + 1];
+            WeightedEvaluator.features(board, move, sample);
+            sample[WeightedEvaluator.FEATURES] = board.nextMove().ordinal();
+            played.add(sample);
+            board.makeMove(move);
+        }
+        PieceState winner = board.getWinner();
+        for (int[] sample : played) {
+            int side = sample[WeightedEvaluator.FEATURES];
+            sample[WeightedEvaluator.FEATURES] = winner == EMPTY ? 1
+                : winner.ordinal() == side ? 2 : 0;
+        }
+        return played;
+    }
+
+    /** Return the number of positions recorded. */
+    int size() {
+        return samples.size();
+    }
+
+    /** Return an evaluator whose weights are fitted to my positions,
+     *  starting from those of START. */
+    WeightedEvaluator tune(WeightedEvaluator start) {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            int[] weights = start.weights();
+            startLoss = endLoss = 0;
+            tune(pool, weights, 0, WeightedEvaluator.POSITION_FEATURES);
+            tune(pool, weights, WeightedEvaluator.POSITION_FEATURES,
+                 WeightedEvaluator.FEATURES);
+            return new WeightedEvaluator(weights);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Fit WEIGHTS[FIRST .. LAST-1] to my positions, computing losses on
+     *  the threads of POOL, and add the losses before and after to
+     *  startLoss and endLoss. */
+    private void tune(ExecutorService pool, int[] weights, int first,
+                      int last) {
+        double scale = fitScale(pool, weights, first, last);
+        double best = loss(pool, weights, first, last, scale);
+        startLoss += best;
+        for (int round = 0; round < MAX_ROUNDS; round += 1) {
+            boolean improved = false;
+            for (int f = first; f < last; f += 1) {
+                for (int step = 1; step >= -1; step -= 2) {
+                    weights[f] += step;
+                    double loss = loss(pool, weights, first, last, scale);
+                    if (loss < best) {
+                        best = loss;
+                        improved = true;
+                        break;
+                    }
+                    weights[f] -= step;
+                }
+            }
+            if (!improved) {
+                break;
+            }
+        }
+        endLoss += best;
+    }
+
+    /** Return the scale k, among SCALE_STEPS + 1 values spaced evenly on
+     *  a log scale from MIN_SCALE to MAX_SCALE, that gives the least loss
+     *  with WEIGHTS[FIRST .. LAST-1], computing losses on POOL. */
+    private double fitScale(ExecutorService pool, int[] weights, int first,
+                            int last) {
+        double bestScale = MIN_SCALE, best = Double.MAX_VALUE;
+        for (int i = 0; i <= SCALE_STEPS; i += 1) {
+            double scale =
+                MIN_SCALE * Math.pow(MAX_SCALE / MIN_SCALE,
+                                     (double) i / SCALE_STEPS);
+            double loss = loss(pool, weights, first, last, scale);
+            if (loss < best) {
+                best = loss;
+                bestScale = scale;
+            }
+        }
+        return bestScale;
+    }
+
+    /** Return the mean squared error of the predictions of my results by
+     *  the values of features FIRST .. LAST-1 of my positions with
+     *  weights WEIGHTS and scale SCALE, summed in parallel on the threads
+     *  of POOL. */
+    private double loss(ExecutorService pool, int[] weights, int first,
+                        int last, double scale) {
+        int n = samples.size();
+        if (n == 0) {
+            return 0;
+        }
+        WeightedEvaluator evaluator = new WeightedEvaluator(weights);
+        int chunk = (n + threads - 1) / threads;
+        List<Future<Double>> parts = new ArrayList<>();
+        for (int lo = 0; lo < n; lo += chunk) {
+            int from = lo, to = Math.min(lo + chunk, n);
+            parts.add(pool.submit(() -> {
+                double sum = 0;
+                for (int i = from; i < to; i += 1) {
+                    int[] sample = samples.get(i);
+                    double value = evaluator.value(sample, first, last);
+                    double error =
+                        sample[WeightedEvaluator.FEATURES] / 2.0
+                        - 1 / (1 + Math.exp(-scale * value));
+                    sum += error * error;
+                }
+                return sum;
+            }));
+        }
+        double total = 0;
+        try {
+            for (Future<Double> part : parts) {
+                total += part.get();
+            }
+        } catch (InterruptedException | ExecutionException excp) {
+            throw error("tuning failed: %s", excp);
+        }
+        return total / n;
+    }
+
+    /** Return the total of the losses of positions and of moves before
+     *  the last tune. */
+    double startLoss() {
+        return startLoss;
+    }
+
+    /** Return the total of the losses of positions and of moves after
+     *  the last tune. */
+    double endLoss() {
+        return endLoss;
+    }
+
+    /** Number of random moves at the start of each game. */
+    static final int RANDOM_PLIES = 4;
+
+    /** After RANDOM_PLIES, one move in this many is random. */
+    private static final int RANDOM_MOVE_ODDS = 10;
+
+    /** Size in megabytes of the table of each game's searches. */
+    private static final int HASH_SIZE = 4;
+
+    /** Most rounds of changes to each weight. */
+    private static final int MAX_ROUNDS = 200;
+
+    /** Range and number of steps of the scales tried by fitScale. */
+    private static final double MIN_SCALE = 1e-4, MAX_SCALE = 1;
+    private static final int SCALE_STEPS = 60;
+
+    /** Search depth of the moves played. */
+    private final int depth;
+
+    /** Number of threads playing games and computing losses. */
+    private final int threads;
+
+    /** The positions recorded: the features of each position and of the
+     *  move played from it, followed by the result of its game for its
+     *  side to move (2 for a win, 1 for a draw, 0 for a loss). */
+    private final List<int[]> samples = new ArrayList<>();
+
+    /** Losses before and after the last tune. */
+    private double startLoss, endLoss;
+}
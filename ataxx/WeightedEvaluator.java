@@ -0,0 +1,192 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static ataxx.GameException.error;
+
+/** An Evaluator that adds up features of a position or move, each
+ *  multiplied by an integer weight.  The first POSITION_FEATURES
+ *  features value positions, and the rest value moves:
+ *      material:  the difference in the number of pieces;
+ *      territory: the difference in the number of empty squares in
+ *                 regions that only one side can reach, late in the
+ *                 game (see Regions.territory);
+ *      mobility:  the difference in the number of moves;
+ *      capture:   the number of pieces a move converts;
+ *      distance:  minus 1 for a move that goes more than one square
+ *                 along a rank or file, and otherwise 0;
+ *      control:   the difference in the number of pieces after a move;
+ *      potential: the difference in the number of moves after a move.
+ *  All differences are taken for the side to move.  Weights are read
+ *  from a text file of lines holding a feature name and its weight, in
+ *  any order; features not named keep their DEFAULT weights, and lines
+ *  that are blank or start with "#" are ignored. */
+class WeightedEvaluator implements Evaluator {
+
+    /** An evaluator with the default weights. */
+    WeightedEvaluator() {
+        this(DEFAULT_WEIGHTS);
+    }
+
+    /** An evaluator with weight WEIGHTS[f] for feature f. */
+    WeightedEvaluator(int[] weights) {
+        if (weights.length != FEATURES) {
+            throw error("need %d weights", FEATURES);
+        }
+        this.weights = weights.clone();
+    }
+
+    /** An evaluator with the weights in FILE. */
+    WeightedEvaluator(Path file) {
+        this(read(file));
+    }
+
+    @Override
+    public int evaluate(Board board) {
+        PieceState me = board.nextMove(), you = me.opposite();
+        int value = weights[MATERIAL]
+            * (board.getColorNums(me) - board.getColorNums(you))
+            + weights[MOBILITY] * (board.moveCount(me) - board.moveCount(you));
+        if (Long.bitCount(board.emptySquares()) <= TERRITORY_EMPTIES) {
+            value += weights[TERRITORY] * Regions.territory(board, me);
+        }
+        return value;
+    }
+
+    @Override
+    public int evaluateMove(Board board, int move, int control,
+                            int mobility) {
+        PieceState me = board.nextMove();
+        int captured = Long.bitCount(board.captures(Move.toBit(move), me));
+        return weights[CAPTURE] * captured
+            - weights[DISTANCE] * distancePenalty(move)
+            + weights[CONTROL]
+              * (control + 2 * captured + (Move.isClone(move) ? 1 : 0))
+            + weights[POTENTIAL]
+              * (mobility + board.moveCountChange(move, me)
+                 - board.moveCountChange(move, me.opposite()));
+    }
+
+    /** Return the weight of feature F. */
+    int weight(int f) {
+        return weights[f];
+    }
+
+    /** Return a copy of my weights, indexed by feature. */
+    int[] weights() {
+        return weights.clone();
+    }
+
+    /** Return the sum of FEATURES[f] times the weight of f, for the
+     *  features f from FIRST to LAST - 1. */
+    int value(int[] features, int first, int last) {
+        int value = 0;
+        for (int f = first; f < last; f += 1) {
+            value += weights[f] * features[f];
+        }
+        return value;
+    }
+
+    /** Write my weights to FILE in the form the constructor reads. */
+    void write(Path file) {
+        List<String> lines = new ArrayList<>();
+        for (int f = 0; f < FEATURES; f += 1) {
+            lines.add(NAMES[f] + " " + weights[f]);
+        }
+        try {
+            Files.write(file, lines);
+        } catch (IOException excp) {
+            throw error("cannot write weights %s: %s", file,
+                        excp.getMessage());
+        }
+    }
+
+    /** Fill FEATURES[0 .. POSITION_FEATURES-1] with the position
+     *  features of BOARD, and FEATURES[POSITION_FEATURES .. FEATURES-1]
+     *  with the move features of the packed MOVE, a legal move other than
+     *  a pass, from BOARD, counting each on the whole board (which is
+     *  left unchanged). */
+    static void features(Board board, int move, int[] features) {
+        PieceState me = board.nextMove(), you = me.opposite();
+        features[MATERIAL] = board.getColorNums(me) - board.getColorNums(you);
+        features[TERRITORY] =
+            Long.bitCount(board.emptySquares()) <= TERRITORY_EMPTIES
+            ? Regions.territory(board, me) : 0;
+        features[MOBILITY] = board.moveCount(me) - board.moveCount(you);
+        int theirs = board.getColorNums(you);
+        board.makeMove(move);
+        features[CAPTURE] = theirs - board.getColorNums(you);
+        features[DISTANCE] = -distancePenalty(move);
+        features[CONTROL] = board.getColorNums(me) - board.getColorNums(you);
+        features[POTENTIAL] = board.moveCount(me) - board.moveCount(you);
+        board.undoMove();
+    }
+
+    /** Return 1 if the packed MOVE goes more than one square along a
+     *  rank or file (a diagonal clone or a jump), and otherwise 0. */
+    private static int distancePenalty(int move) {
+        int from = Move.fromBit(move), to = Move.toBit(move);
+        int distance = Math.abs(to % Board.ONESIDE - from % Board.ONESIDE)
+            + Math.abs(to / Board.ONESIDE - from / Board.ONESIDE);
+        return distance == 1 ? 0 : 1;
+    }
+
+    /** Return the weights in FILE, starting from the defaults. */
+    private static int[] read(Path file) {
+        int[] weights = DEFAULT_WEIGHTS.clone();
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file);
+        } catch (IOException excp) {
+            throw error("cannot read weights %s: %s", file,
+                        excp.getMessage());
+        }
+        for (String line : lines) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\\s+");
+            int f = Arrays.asList(NAMES).indexOf(fields[0]);
+            if (f < 0 || fields.length != 2) {
+                throw error("bad line in weights %s: %s", file, line);
+            }
+            try {
+                weights[f] = Integer.parseInt(fields[1]);
+            } catch (NumberFormatException excp) {
+                throw error("bad weight in %s: %s", file, line);
+            }
+        }
+        return weights;
+    }
+
+    /** Feature numbers. */
+    static final int MATERIAL = 0, TERRITORY = 1, MOBILITY = 2, CAPTURE = 3,
+        DISTANCE = 4, CONTROL = 5, POTENTIAL = 6;
+
+    /** Number of features, and number of those that value positions. */
+    static final int FEATURES = 7, POSITION_FEATURES = 3;
+
+    /** Feature names, as used in weight files. */
+    static final String[] NAMES = {
+        "material", "territory", "mobility", "capture", "distance",
+        "control", "potential"
+    };
+
+    /** Positions with at most this many empty squares count territory. */
+    static final int TERRITORY_EMPTIES = 16;
+
+    /** The weights used when no others are given. */
+    private static final int[] DEFAULT_WEIGHTS = { 10, 10, 1, 10, 2, 5, 3 };
+
+    /** An evaluator with the default weights. */
+    static final WeightedEvaluator DEFAULT = new WeightedEvaluator();
+
+    /** My weights, indexed by feature. */
+    private final int[] weights;
+}
@@ -0,0 +1,90 @@
+package ataxx;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class WeightedEvaluatorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testEvaluateIsWeightedFeatures() {
+        WeightedEvaluator eval =
+            new WeightedEvaluator(new int[] { 7, 3, 2, 11, 4, 6, 5 });
+        int[] features = new int[WeightedEvaluator.FEATURES];
+        int[] moves = new int[Board.MAX_MOVES];
+        for (int seed = 0; seed < 20; seed++) {
+            Board b = SearchTest.randomBoard(seed, 5 * seed);
+            if (b.getWinner() != null) {
+                continue;
+            }
+            PieceState me = b.nextMove();
+            int control = b.getColorNums(me) - b.getColorNums(me.opposite());
+            int mobility = b.moveCount(me) - b.moveCount(me.opposite());
+            int n = b.generateMoves(moves, true);
+            for (int i = 0; i < n; i++) {
+                WeightedEvaluator.features(b, moves[i], features);
+                assertEquals(eval.value(features, 0,
+                                 WeightedEvaluator.POSITION_FEATURES),
+                             eval.evaluate(b));
+                assertEquals(eval.value(features,
+                                 WeightedEvaluator.POSITION_FEATURES,
+                                 WeightedEvaluator.FEATURES),
+                             eval.evaluateMove(b, moves[i], control,
+                                               mobility));
+            }
+        }
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        Path file = folder.newFile("tuned.weights").toPath();
+        int[] weights = { 9, 8, 2, 12, 1, 4, 3 };
+        new WeightedEvaluator(weights).write(file);
+        assertArrayEquals(weights, new WeightedEvaluator(file).weights());
+
+        Files.write(file, Arrays.asList("# partial", "", "mobility 5"));
+        WeightedEvaluator partial = new WeightedEvaluator(file);
+        assertEquals(5, partial.weight(WeightedEvaluator.MOBILITY));
+        assertEquals(WeightedEvaluator.DEFAULT.weight(
+                         WeightedEvaluator.MATERIAL),
+                     partial.weight(WeightedEvaluator.MATERIAL));
+    }
+
+    @Test(expected = GameException.class)
+    public void testRejectsUnknownFeature() throws IOException {
+        Path file = folder.newFile("bad.weights").toPath();
+        Files.write(file, Arrays.asList("material 10", "luck 3"));
+        new WeightedEvaluator(file);
+    }
+
+    @Test
+    public void testTuningLowersLoss() {
+        Tuner tuner = new Tuner(1, 2);
+        tuner.collect(new Board(), 6, 5);
+        assertTrue(tuner.size() > 0);
+        WeightedEvaluator tuned = tuner.tune(WeightedEvaluator.DEFAULT);
+        assertEquals(WeightedEvaluator.FEATURES, tuned.weights().length);
+        assertTrue(tuner.endLoss() <= tuner.startLoss());
+    }
+
+    @Test
+    public void testTuningIsRepeatable() {
+        int[][] weights = new int[2][];
+        for (int i = 0; i < 2; i++) {
+            Tuner tuner = new Tuner(1, 3);
+            tuner.collect(new Board(), 4, 11);
+            weights[i] = tuner.tune(WeightedEvaluator.DEFAULT).weights();
+        }
+        assertArrayEquals(weights[0], weights[1]);
+    }
+}